@@ -0,0 +1,326 @@
+package com.sajoldev.habittracker.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.room.migration.Migration;
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migration tests for HabitDatabase, run against the schemas exported to app/schemas
+ * Each migration rewrites user data, so each test checks the rows it produces as well
+ * as the resulting schema
+ */
+@RunWith(AndroidJUnit4.class)
+public class HabitDatabaseMigrationTest {
+
+    private static final String TEST_DB = "migration-test";
+
+    private static final Migration[] ALL_MIGRATIONS = {
+            HabitDatabase.MIGRATION_2_3, HabitDatabase.MIGRATION_3_4,
+            HabitDatabase.MIGRATION_4_5, HabitDatabase.MIGRATION_5_6,
+            HabitDatabase.MIGRATION_6_7, HabitDatabase.MIGRATION_7_8
+    };
+
+    @Rule
+    public MigrationTestHelper helper = new MigrationTestHelper(
+            InstrumentationRegistry.getInstrumentation(), HabitDatabase.class);
+
+    @Test
+    public void migrate2To3_splitsCompletedDatesIntoRows() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 2)) {
+            // Out of order, with a duplicate, an empty entry and an unparseable one
+            insertHabit(db, 1, "Read", day("2024-01-01"), "completedDates",
+                    "2024-01-02,2024-01-01,,not-a-date,2024-01-01");
+            insertHabit(db, 2, "Run", day("2024-01-01"), "completedDates", null);
+            insertHabit(db, 3, "Walk", day("2024-01-01"), "completedDates", "");
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 3, true, HabitDatabase.MIGRATION_2_3);
+
+        assertEquals(Arrays.asList(day("2024-01-01"), day("2024-01-02")), completedDays(db, 1));
+        assertTrue(completedDays(db, 2).isEmpty());
+        assertTrue(completedDays(db, 3).isEmpty());
+        // The rebuilt habits table keeps every other column
+        try (Cursor cursor = db.query("SELECT name, currentStreak, longestStreak FROM habits WHERE id = 1")) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Read", cursor.getString(0));
+            assertEquals(2, cursor.getInt(1));
+            assertEquals(5, cursor.getInt(2));
+        }
+    }
+
+    @Test
+    public void migrate3To4_backfillsCompletionBitmaps() throws IOException {
+        int start = day("2024-01-01");
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 3)) {
+            insertHabit(db, 1, "Read", start, null, null);
+            insertHabit(db, 2, "Run", start, null, null);
+            insertHabit(db, 3, "Walk", start, null, null);
+            // Spans more than one 64-day word
+            insertCompletions(db, 1, start, start + 1, start + 70);
+            insertCompletions(db, 2, start + 5);
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 4, true, HabitDatabase.MIGRATION_3_4);
+
+        assertArrayEquals(new int[]{start, start + 1, start + 70}, storedBitmap(db, 1).toArray());
+        assertArrayEquals(new int[]{start + 5}, storedBitmap(db, 2).toArray());
+        try (Cursor cursor = db.query("SELECT completionBitmap FROM habits WHERE id = 3")) {
+            assertTrue(cursor.moveToFirst());
+            assertTrue(cursor.isNull(0));
+        }
+    }
+
+    @Test
+    public void migrate4To5_backfillsDailyStats() throws IOException {
+        int day = day("2024-03-10");
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 4)) {
+            insertHabit(db, 1, "Read", day - 10, null, null);
+            insertHabit(db, 2, "Run", day + 1, null, null);
+            insertCompletions(db, 1, day, day + 1);
+            insertCompletions(db, 2, day + 1);
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 5, true, HabitDatabase.MIGRATION_4_5);
+
+        // {completedCount, activeHabitCount}; habit 2 did not exist yet on the first day
+        assertArrayEquals(new int[]{1, 1}, dailyStat(db, day));
+        assertArrayEquals(new int[]{2, 2}, dailyStat(db, day + 1));
+
+        // The triggers keep the table current from now on
+        insertCompletions(db, 1, day + 2);
+        db.execSQL("DELETE FROM habit_completions WHERE habitId = 2 AND epochDay = ?", new Object[]{day + 1});
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, day + 2));
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, day + 1));
+    }
+
+    @Test
+    public void migrate5To6_backfillsWeeklyAndMonthlyRollups() throws IOException {
+        int monday = day("2024-01-29");
+        int nextMonday = day("2024-02-05");
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 5)) {
+            insertHabit(db, 1, "Read", monday, null, null);
+            insertCompletions(db, 1, monday, day("2024-01-31"), day("2024-02-01"), nextMonday);
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 6, true, HabitDatabase.MIGRATION_5_6);
+
+        assertEquals(3, rollup(db, "weekly_stats", "weekStartDay", monday));
+        assertEquals(1, rollup(db, "weekly_stats", "weekStartDay", nextMonday));
+        assertEquals(2, rollup(db, "monthly_stats", "monthStartDay", day("2024-01-01")));
+        assertEquals(2, rollup(db, "monthly_stats", "monthStartDay", day("2024-02-01")));
+
+        insertCompletions(db, 1, nextMonday + 1);
+        db.execSQL("DELETE FROM habit_completions WHERE habitId = 1 AND epochDay = ?", new Object[]{monday});
+        assertEquals(2, rollup(db, "weekly_stats", "weekStartDay", monday));
+        assertEquals(2, rollup(db, "weekly_stats", "weekStartDay", nextMonday));
+        assertEquals(1, rollup(db, "monthly_stats", "monthStartDay", day("2024-01-01")));
+        assertEquals(3, rollup(db, "monthly_stats", "monthStartDay", day("2024-02-01")));
+    }
+
+    @Test
+    public void migrate6To7_tracksWhetherTheBitmapIsCurrent() throws IOException {
+        int start = day("2024-01-01");
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 6)) {
+            insertHabit(db, 1, "Read", start, null, null);
+            insertHabit(db, 2, "Run", start, null, null);
+            insertCompletions(db, 1, start);
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 7, true, HabitDatabase.MIGRATION_6_7);
+
+        // Existing bitmaps were kept in step by the old write paths
+        assertArrayEquals(new int[]{0, 0}, versions(db, 1));
+
+        // Every row written or removed from now on marks the bitmap stale
+        insertCompletions(db, 1, start + 1, start + 2);
+        db.execSQL("DELETE FROM habit_completions WHERE habitId = 1 AND epochDay = ?", new Object[]{start});
+        assertArrayEquals(new int[]{3, 0}, versions(db, 1));
+        assertArrayEquals(new int[]{0, 0}, versions(db, 2));
+    }
+
+    @Test
+    public void migrate7To8_countsOnlyTheHabitsDueEachDay() throws IOException {
+        int monday = day("2024-01-29");
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 7)) {
+            insertHabit(db, 1, "Read", monday - 7, null, null);
+            insertHabit(db, 2, "Run", monday - 7, "frequency", "Weekly");
+            insertHabit(db, 3, "Swim", monday - 7, "frequency", "Custom");
+            db.execSQL("UPDATE habits SET selectedDays = 'Tue, wed' WHERE id = 3");
+            insertCompletions(db, 1, monday, monday + 1, monday + 3);
+            // As the version 7 triggers left them, counting every habit on every day
+            for (int day : new int[]{monday, monday + 1, monday + 3}) {
+                db.execSQL("INSERT INTO daily_stats (epochDay, completedCount, activeHabitCount) VALUES (?, 1, 3)",
+                        new Object[]{day});
+            }
+        }
+
+        SupportSQLiteDatabase db = helper.runMigrationsAndValidate(TEST_DB, 8, true, HabitDatabase.MIGRATION_7_8);
+
+        // {completedCount, activeHabitCount}
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, monday));
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, monday + 1));
+        assertArrayEquals(new int[]{1, 1}, dailyStat(db, monday + 3));
+
+        // New rows and new habits are counted by schedule too
+        insertCompletions(db, 1, monday + 2);
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, monday + 2));
+        insertHabit(db, 4, "Walk", monday - 7, "frequency", "Weekly");
+        assertArrayEquals(new int[]{1, 3}, dailyStat(db, monday));
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, monday + 1));
+
+        // A schedule edit moves the habit between days
+        db.execSQL("UPDATE habits SET frequency = 'Custom', selectedDays = 'Thu' WHERE id = 2");
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, monday));
+        assertArrayEquals(new int[]{1, 2}, dailyStat(db, monday + 3));
+        db.execSQL("DELETE FROM habits WHERE id = 3");
+        assertArrayEquals(new int[]{1, 1}, dailyStat(db, monday + 1));
+    }
+
+    @Test
+    public void migrate2To8_opensWithTheCurrentEntities() throws IOException {
+        try (SupportSQLiteDatabase db = helper.createDatabase(TEST_DB, 2)) {
+            insertHabit(db, 1, "Read", day("2024-01-01"), "completedDates", "2024-01-01,2024-01-02");
+        }
+
+        // Room validates the migrated schema against the entities on open
+        HabitDatabase database = Room.databaseBuilder(
+                        InstrumentationRegistry.getInstrumentation().getTargetContext(),
+                        HabitDatabase.class, TEST_DB)
+                .addMigrations(ALL_MIGRATIONS)
+                .build();
+        helper.closeWhenFinished(database);
+        HabitDao habitDao = database.habitDao();
+
+        assertEquals(Arrays.asList(day("2024-01-01"), day("2024-01-02")),
+                habitDao.getCompletedDaysBetween(1, day("2024-01-01"), day("2024-12-31")));
+        assertArrayEquals(new int[]{day("2024-01-01"), day("2024-01-02")},
+                habitDao.getCurrentCompletionState(1).getCompletionBitmap().toArray());
+
+        // A check-in writes only the row and the streaks; the bitmap is synced later
+        assertTrue(habitDao.setCompletedOnDay(1, day("2024-01-03"), true, day("2024-01-03")));
+        assertEquals(Arrays.asList(1), habitDao.getStaleBitmapIds());
+        CompletionState state = habitDao.getCurrentCompletionState(1);
+        assertArrayEquals(new int[]{day("2024-01-01"), day("2024-01-02"), day("2024-01-03")},
+                state.getCompletionBitmap().toArray());
+        assertEquals(3, state.getCurrentStreak());
+        assertEquals(5, state.getLongestStreak());
+        assertEquals(1, habitDao.syncCompletionBitmaps());
+        assertTrue(habitDao.getStaleBitmapIds().isEmpty());
+        assertArrayEquals(new int[]{day("2024-01-01"), day("2024-01-02"), day("2024-01-03")},
+                habitDao.getCompletionState(1).getCompletionBitmap().toArray());
+        List<DailyStat> stats = habitDao.getDailyStats(day("2024-01-01"), day("2024-01-02"));
+        assertEquals(2, stats.size());
+        assertEquals(1, stats.get(1).getCompletedCount());
+        assertEquals(1, stats.get(1).getActiveHabitCount());
+    }
+
+    private static int day(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    /**
+     * Insert a habit created at local noon of the given day
+     * @param extraColumn A version-specific column to set as well, or null
+     */
+    private static void insertHabit(SupportSQLiteDatabase db, int id, String name, int createdDay,
+                                    String extraColumn, String extraValue) {
+        ContentValues values = new ContentValues();
+        values.put("id", id);
+        values.put("name", name);
+        values.put("goal", "");
+        values.put("color", 0);
+        values.put("iconResourceId", 0);
+        values.put("category", "Other");
+        values.put("createdDate", LocalDate.ofEpochDay(createdDay).atTime(12, 0)
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        values.put("frequency", "Daily");
+        values.put("selectedDays", "");
+        values.put("reminderEnabled", 0);
+        values.put("reminderHour", 9);
+        values.put("reminderMinute", 0);
+        values.put("currentStreak", 2);
+        values.put("longestStreak", 5);
+        values.put("isCheckedToday", 0);
+        if (extraColumn != null) {
+            values.put(extraColumn, extraValue);
+        }
+        db.insert("habits", SQLiteDatabase.CONFLICT_NONE, values);
+    }
+
+    private static void insertCompletions(SupportSQLiteDatabase db, int habitId, int... days) {
+        ContentValues values = new ContentValues();
+        for (int day : days) {
+            values.clear();
+            values.put("habitId", habitId);
+            values.put("epochDay", day);
+            db.insert("habit_completions", SQLiteDatabase.CONFLICT_NONE, values);
+        }
+    }
+
+    private static List<Integer> completedDays(SupportSQLiteDatabase db, int habitId) {
+        List<Integer> days = new ArrayList<>();
+        try (Cursor cursor = db.query("SELECT epochDay FROM habit_completions WHERE habitId = ? ORDER BY epochDay",
+                new Object[]{habitId})) {
+            while (cursor.moveToNext()) {
+                days.add(cursor.getInt(0));
+            }
+        }
+        return days;
+    }
+
+    private static CompletionBitmap storedBitmap(SupportSQLiteDatabase db, int habitId) {
+        try (Cursor cursor = db.query("SELECT completionBitmap FROM habits WHERE id = ?", new Object[]{habitId})) {
+            assertTrue(cursor.moveToFirst());
+            return CompletionBitmap.fromBytes(cursor.getBlob(0));
+        }
+    }
+
+    /** {completionVersion, bitmapVersion} of a habit */
+    private static int[] versions(SupportSQLiteDatabase db, int habitId) {
+        try (Cursor cursor = db.query("SELECT completionVersion, bitmapVersion FROM habits WHERE id = ?",
+                new Object[]{habitId})) {
+            assertTrue(cursor.moveToFirst());
+            return new int[]{cursor.getInt(0), cursor.getInt(1)};
+        }
+    }
+
+    private static int[] dailyStat(SupportSQLiteDatabase db, int epochDay) {
+        try (Cursor cursor = db.query("SELECT completedCount, activeHabitCount FROM daily_stats WHERE epochDay = ?",
+                new Object[]{epochDay})) {
+            assertTrue(cursor.moveToFirst());
+            return new int[]{cursor.getInt(0), cursor.getInt(1)};
+        }
+    }
+
+    private static int rollup(SupportSQLiteDatabase db, String table, String keyColumn, int key) {
+        try (Cursor cursor = db.query("SELECT completedCount FROM " + table + " WHERE " + keyColumn + " = ?",
+                new Object[]{key})) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+}
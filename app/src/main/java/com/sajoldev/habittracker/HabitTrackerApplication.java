@@ -1,6 +1,14 @@
 package com.sajoldev.habittracker;
 
 import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.repository.DailyRollover;
+import com.sajoldev.habittracker.repository.StreakRecomputeJob;
 
 /**
  * HabitTrackerApplication - Application class
@@ -11,6 +19,20 @@ public class HabitTrackerApplication extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
+
+        // Keep the cached time zone used for day keys in sync with the device
+        registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                DateKeys.refreshZone();
+            }
+        }, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+
+        // Stored streaks are rebuilt from history after each schema upgrade
+        StreakRecomputeJob.runIfSchemaChanged(this);
+
+        // Start each day with one batched rollover at local midnight
+        DailyRollover.schedule(this);
         
         // Initialize any app-wide components here
         // Example: Crash reporting, analytics, etc.
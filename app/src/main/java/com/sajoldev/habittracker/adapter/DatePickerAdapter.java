@@ -10,18 +10,46 @@ import androidx.cardview.widget.CardView;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.sajoldev.habittracker.R;
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+import com.sajoldev.habittracker.data.DailyStat;
 import com.sajoldev.habittracker.utils.DateUtils;
 
+import java.time.LocalDate;
 import java.util.Date;
+import java.util.List;
 
 /**
  * DatePickerAdapter - Horizontal RecyclerView Adapter for date selection
- * Shows a scrollable list of dates at the top of the main screen
+ * Shows a scrollable strip of dates at the top of the main screen
+ *
+ * The strip is virtual: position i is the day firstDay + i, so nothing is allocated per
+ * day and finding a day's position is a subtraction. Labels are made when a day is bound.
+ * Each day shows its completion count from the precomputed daily stats.
  */
 public class DatePickerAdapter extends RecyclerView.Adapter<DatePickerAdapter.DateViewHolder> {
 
-    private Date[] dates;
-    private int selectedPosition;
+    private static final Object PAYLOAD_COUNT = new Object();
+
+    // Short weekday names, Monday first; epoch day 4 (1970-01-05) was a Monday
+    private static final String[] DAY_NAMES = new String[7];
+    private static final String[] DAY_NUMBERS = new String[31];
+
+    static {
+        for (int i = 0; i < DAY_NAMES.length; i++) {
+            DAY_NAMES[i] = DateUtils.getDayName(DateKeys.toDate(4 + i));
+        }
+        for (int i = 0; i < DAY_NUMBERS.length; i++) {
+            DAY_NUMBERS[i] = String.valueOf(i + 1);
+        }
+    }
+
+    private int firstDay;
+    private int lastDay;
+    private int today;
+    private int selectedDay;
+    // Completions per day, indexed by position
+    private int[] counts;
     private OnDateSelectedListener listener;
 
     /**
@@ -31,24 +59,17 @@ public class DatePickerAdapter extends RecyclerView.Adapter<DatePickerAdapter.Da
         void onDateSelected(Date date, int position);
     }
 
-    public DatePickerAdapter(Date[] dates, OnDateSelectedListener listener) {
-        this.dates = dates;
-        this.listener = listener;
-        this.selectedPosition = findTodayPosition(); // Select today by default
-    }
-    
     /**
-     * Find the position of today in the dates array
+     * @param firstDay Oldest epoch day in the strip
+     * @param lastDay Newest epoch day in the strip
      */
-    private int findTodayPosition() {
-        Date today = new Date();
-        String todayStr = DateUtils.dateToString(today);
-        for (int i = 0; i < dates.length; i++) {
-            if (DateUtils.dateToString(dates[i]).equals(todayStr)) {
-                return i;
-            }
-        }
-        return dates.length / 2; // Fallback to middle if today not found
+    public DatePickerAdapter(int firstDay, int lastDay, OnDateSelectedListener listener) {
+        this.firstDay = firstDay;
+        this.lastDay = lastDay;
+        this.listener = listener;
+        this.today = DateUtils.todayEpochDay();
+        this.selectedDay = today; // Select today by default
+        this.counts = new int[lastDay - firstDay + 1];
     }
 
     @NonNull
@@ -61,101 +82,157 @@ public class DatePickerAdapter extends RecyclerView.Adapter<DatePickerAdapter.Da
 
     @Override
     public void onBindViewHolder(@NonNull DateViewHolder holder, int position) {
-        holder.bind(dates[position], position);
+        holder.bind(firstDay + position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull DateViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            holder.bindCount(counts[position]);
+        }
     }
 
     @Override
     public int getItemCount() {
-        return dates.length;
+        return lastDay - firstDay + 1;
+    }
+
+    public int getFirstDay() {
+        return firstDay;
     }
 
     /**
-     * Set selected position
+     * Extend the strip back to an older first day; rows already shown keep their place
      */
-    public void setSelectedPosition(int position) {
-        int previousSelected = selectedPosition;
-        selectedPosition = position;
-        notifyItemChanged(previousSelected);
-        notifyItemChanged(selectedPosition);
+    public void extendBackTo(int day) {
+        if (day >= firstDay) return;
+        int added = firstDay - day;
+        int[] extended = new int[counts.length + added];
+        System.arraycopy(counts, 0, extended, added, counts.length);
+        counts = extended;
+        firstDay = day;
+        notifyItemRangeInserted(0, added);
+    }
+
+    /**
+     * Set the completions per day; days outside the strip are ignored
+     * Only days whose count changed are rebound
+     */
+    public void setDailyStats(List<DailyStat> stats) {
+        int[] byPosition = new int[counts.length];
+        if (stats != null) {
+            for (DailyStat stat : stats) {
+                int position = stat.getEpochDay() - firstDay;
+                if (position >= 0 && position < byPosition.length) {
+                    byPosition[position] = stat.getCompletedCount();
+                }
+            }
+        }
+        int[] previous = counts;
+        counts = byPosition;
+        for (int position = 0; position < byPosition.length; position++) {
+            if (byPosition[position] != previous[position]) {
+                notifyItemChanged(position, PAYLOAD_COUNT);
+            }
+        }
+    }
+
+    /**
+     * Select a day, rebinding only the previously selected day and the new one
+     */
+    public void setSelectedDay(int epochDay) {
+        int previous = selectedDay;
+        selectedDay = epochDay;
+        notifyDayChanged(previous);
+        notifyDayChanged(epochDay);
     }
 
     /**
      * Get selected date
      */
     public Date getSelectedDate() {
-        return dates[selectedPosition];
+        return DateKeys.toDate(selectedDay);
     }
 
     /**
-     * Get position for a specific date
+     * Get the position of a day, or -1 if it is outside the strip
      */
-    public int getPositionForDate(Date date) {
-        String targetDate = DateUtils.dateToString(date);
-        for (int i = 0; i < dates.length; i++) {
-            if (DateUtils.dateToString(dates[i]).equals(targetDate)) {
-                return i;
-            }
+    public int getPositionForDay(int epochDay) {
+        return epochDay < firstDay || epochDay > lastDay ? -1 : epochDay - firstDay;
+    }
+
+    private void notifyDayChanged(int epochDay) {
+        int position = getPositionForDay(epochDay);
+        if (position >= 0) {
+            notifyItemChanged(position);
         }
-        return -1;
     }
 
     class DateViewHolder extends RecyclerView.ViewHolder {
         private CardView cardView;
         private TextView dayTextView;
         private TextView dateTextView;
+        private TextView countTextView;
 
         DateViewHolder(@NonNull View itemView) {
             super(itemView);
             cardView = itemView.findViewById(R.id.dateCardView);
             dayTextView = itemView.findViewById(R.id.dayTextView);
             dateTextView = itemView.findViewById(R.id.dateTextView);
-        }
-
-        void bind(Date date, int position) {
-            // Set day name (Mon, Tue, etc.)
-            dayTextView.setText(DateUtils.getDayName(date));
-            
-            // Set date number
-            dateTextView.setText(String.valueOf(getDayOfMonth(date)));
-
-            // Highlight today
-            if (DateUtils.isToday(date)) {
-                dayTextView.setText("TODAY");
-            }
-
-            // Update selection state
-            boolean isSelected = position == selectedPosition;
-            updateSelectionState(isSelected);
+            countTextView = itemView.findViewById(R.id.countTextView);
 
-            // Click listener
+            // Click listener; the day is read from the position when clicked
             cardView.setOnClickListener(v -> {
-                if (position != selectedPosition) {
-                    setSelectedPosition(position);
+                int position = getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) return;
+                int day = firstDay + position;
+                if (day != selectedDay) {
+                    setSelectedDay(day);
                     if (listener != null) {
-                        listener.onDateSelected(date, position);
+                        listener.onDateSelected(DateKeys.toDate(day), position);
                     }
                 }
             });
         }
 
+        void bind(int epochDay) {
+            // Day name (Mon, Tue, etc.), or TODAY
+            dayTextView.setText(epochDay == today ? "TODAY" : DAY_NAMES[WeekdaySchedule.weekday(epochDay)]);
+
+            // Date number
+            dateTextView.setText(DAY_NUMBERS[LocalDate.ofEpochDay(epochDay).getDayOfMonth() - 1]);
+
+            bindCount(counts[epochDay - firstDay]);
+
+            // Update selection state
+            updateSelectionState(epochDay == selectedDay);
+        }
+
+        void bindCount(int count) {
+            if (count > 0) {
+                countTextView.setText("✓ " + count);
+                countTextView.setVisibility(View.VISIBLE);
+            } else {
+                countTextView.setVisibility(View.INVISIBLE);
+            }
+        }
+
         private void updateSelectionState(boolean isSelected) {
             if (isSelected) {
                 cardView.setCardBackgroundColor(cardView.getContext().getResources().getColor(R.color.colorPrimary));
                 dayTextView.setTextColor(cardView.getContext().getResources().getColor(android.R.color.white));
                 dateTextView.setTextColor(cardView.getContext().getResources().getColor(android.R.color.white));
+                countTextView.setTextColor(cardView.getContext().getResources().getColor(android.R.color.white));
                 cardView.setElevation(8f);
             } else {
                 cardView.setCardBackgroundColor(cardView.getContext().getResources().getColor(android.R.color.white));
                 dayTextView.setTextColor(cardView.getContext().getResources().getColor(R.color.colorTextSecondary));
                 dateTextView.setTextColor(cardView.getContext().getResources().getColor(R.color.colorTextPrimary));
+                countTextView.setTextColor(cardView.getContext().getResources().getColor(R.color.colorSuccess));
                 cardView.setElevation(2f);
             }
         }
-
-        private int getDayOfMonth(Date date) {
-            java.util.Calendar cal = java.util.Calendar.getInstance();
-            cal.setTime(date);
-            return cal.get(java.util.Calendar.DAY_OF_MONTH);
-        }
     }
 }
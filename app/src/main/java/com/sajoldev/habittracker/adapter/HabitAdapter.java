@@ -14,38 +14,69 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.sajoldev.habittracker.R;
-import com.sajoldev.habittracker.data.HabitEntity;
-import com.sajoldev.habittracker.utils.DateUtils;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.HabitSummary;
 
-import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * HabitAdapter - RecyclerView Adapter for displaying habits
  * Handles item display, click events, and completion animations
+ * Binds HabitRowModel rows, whose display state is already resolved for the selected date
+ *
+ * New lists are diffed against the current one on the read lane. Rows keep stable IDs,
+ * and a row whose only changes are its completion state, streak or check button is
+ * rebound with a payload that touches just those views, so a check-in updates one
+ * checkmark. Binds only copy precomputed fields into views.
  */
-public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHolder> {
+public class HabitAdapter extends ListAdapter<HabitRowModel, HabitAdapter.HabitViewHolder> {
+
+    // Change payloads, combined as bit flags
+    static final int PAYLOAD_COMPLETION = 1;
+    static final int PAYLOAD_STREAK = 1 << 1;
+    static final int PAYLOAD_CHECK_ENABLED = 1 << 2;
+
+    private static final DiffUtil.ItemCallback<HabitRowModel> DIFF_CALLBACK = new DiffUtil.ItemCallback<HabitRowModel>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull HabitRowModel oldItem, @NonNull HabitRowModel newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull HabitRowModel oldItem, @NonNull HabitRowModel newItem) {
+            return sameAppearance(oldItem, newItem) && changesBetween(oldItem, newItem) == 0;
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull HabitRowModel oldItem, @NonNull HabitRowModel newItem) {
+            return sameAppearance(oldItem, newItem) ? changesBetween(oldItem, newItem) : null;
+        }
+    };
 
-    private List<HabitEntity> habits = new ArrayList<>();
     private OnHabitClickListener listener;
-    private Date selectedDate;
 
     /**
      * Interface for handling habit interactions
      */
     public interface OnHabitClickListener {
-        void onHabitClick(HabitEntity habit, int position);
-        void onHabitLongClick(HabitEntity habit, int position);
-        void onCheckClick(HabitEntity habit, int position, boolean isChecked);
+        void onHabitClick(HabitSummary habit, int position);
+        void onHabitLongClick(HabitSummary habit, int position);
+        void onCheckClick(HabitSummary habit, int position, boolean isChecked);
     }
 
     public HabitAdapter(OnHabitClickListener listener) {
+        super(new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                .setBackgroundThreadExecutor(DatabaseExecutors.getInstance().read())
+                .build());
+        setHasStableIds(true);
         this.listener = listener;
-        this.selectedDate = new Date();
     }
 
     @NonNull
@@ -58,40 +89,75 @@ public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHol
 
     @Override
     public void onBindViewHolder(@NonNull HabitViewHolder holder, int position) {
-        HabitEntity habit = habits.get(position);
-        holder.bind(habit, position);
-        
-        Animation slideIn = AnimationUtils.loadAnimation(holder.itemView.getContext(), R.anim.item_slide_in);
-        slideIn.setStartOffset(position * 100);
-        holder.itemView.startAnimation(slideIn);
+        holder.bind(getItem(position));
+
+        // Slide in the first time a row is shown; recycled rows just rebind
+        if (!holder.shown) {
+            holder.shown = true;
+            Animation slideIn = AnimationUtils.loadAnimation(holder.itemView.getContext(), R.anim.item_slide_in);
+            slideIn.setStartOffset(position * 100);
+            holder.itemView.startAnimation(slideIn);
+        }
     }
 
     @Override
-    public int getItemCount() {
-        return habits.size();
+    public void onBindViewHolder(@NonNull HabitViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        int changes = 0;
+        for (Object payload : payloads) {
+            changes |= (Integer) payload;
+        }
+        HabitRowModel row = getItem(position);
+        if ((changes & PAYLOAD_COMPLETION) != 0) {
+            holder.bindCompletion(row);
+        }
+        if ((changes & PAYLOAD_STREAK) != 0) {
+            holder.streakTextView.setText(row.getStreakLabel());
+        }
+        if ((changes & PAYLOAD_CHECK_ENABLED) != 0) {
+            holder.bindCheckEnabled(row);
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     /**
-     * Update the list of habits
+     * Update the list of rows
+     * The list is diffed in the background; only rows that changed are rebound
      */
-    public void setHabits(List<HabitEntity> habits) {
-        this.habits = habits;
-        notifyDataSetChanged();
+    public void setRows(List<HabitRowModel> rows) {
+        submitList(rows);
     }
 
     /**
      * Get habit at position
      */
-    public HabitEntity getHabitAt(int position) {
-        return habits.get(position);
+    public HabitSummary getHabitAt(int position) {
+        return getItem(position).getHabit();
     }
 
     /**
-     * Set the currently selected date for viewing
+     * Whether two rows of the same habit look the same apart from completion, streak and check button
      */
-    public void setSelectedDate(Date date) {
-        this.selectedDate = date;
-        notifyDataSetChanged();
+    private static boolean sameAppearance(HabitRowModel oldItem, HabitRowModel newItem) {
+        return Objects.equals(oldItem.getName(), newItem.getName())
+                && Objects.equals(oldItem.getGoal(), newItem.getGoal())
+                && oldItem.getColor() == newItem.getColor()
+                && oldItem.getIconResourceId() == newItem.getIconResourceId();
+    }
+
+    private static int changesBetween(HabitRowModel oldItem, HabitRowModel newItem) {
+        int changes = 0;
+        if (oldItem.isCompleted() != newItem.isCompleted()) changes |= PAYLOAD_COMPLETION;
+        if (!oldItem.getStreakLabel().equals(newItem.getStreakLabel())) changes |= PAYLOAD_STREAK;
+        if (oldItem.isCheckEnabled() != newItem.isCheckEnabled()) changes |= PAYLOAD_CHECK_ENABLED;
+        return changes;
     }
 
     /**
@@ -106,6 +172,11 @@ public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHol
         private TextView streakTextView;
         private View colorIndicator;
 
+        // Whether this row has slid in already
+        private boolean shown;
+        // Icon currently set, so rebinding the same habit skips reloading it
+        private int boundIconResourceId;
+
         HabitViewHolder(@NonNull View itemView) {
             super(itemView);
             cardView = itemView.findViewById(R.id.cardView);
@@ -115,85 +186,69 @@ public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHol
             goalTextView = itemView.findViewById(R.id.goalTextView);
             streakTextView = itemView.findViewById(R.id.streakTextView);
             colorIndicator = itemView.findViewById(R.id.colorIndicator);
-        }
-
-        void bind(HabitEntity habit, int position) {
-            // Set habit name and goal
-            nameTextView.setText(habit.getName());
-            goalTextView.setText(habit.getGoal());
-
-            // Set streak display
-            String streakText = "🔥 " + habit.getCurrentStreak() + " day streak";
-            if (habit.getCurrentStreak() != 1) {
-                streakText = "🔥 " + habit.getCurrentStreak() + " day streak";
-            }
-            streakTextView.setText(streakText);
-
-            // Set color indicator
-            colorIndicator.setBackgroundColor(habit.getColor());
-
-            // Set icon
-            iconImageView.setImageResource(habit.getIconResourceId());
-
-            // Check if viewing today or a past/future date
-            String dateStr = DateUtils.dateToString(selectedDate);
-            boolean isToday = DateUtils.isToday(selectedDate);
-            boolean isCompleted = habit.isCompletedOnDate(dateStr);
-
-            // Update completion UI
-            updateCompletionUI(isCompleted);
-
-            // Enable/disable click based on date
-            checkImageView.setEnabled(isToday);
-            checkImageView.setAlpha(isToday ? 1.0f : 0.5f);
 
-            // Click listener for checkbox
+            // Listeners read the row's current model when clicked, so binds never reset them
             checkImageView.setOnClickListener(v -> {
-                if (listener != null && isToday) {
-                    // Animate the checkmark
-                    animateCheck(v, !isCompleted, () -> {
-                        listener.onCheckClick(habit, position, !isCompleted);
-                    });
-                }
+                int position = getBindingAdapterPosition();
+                if (listener == null || position == RecyclerView.NO_POSITION) return;
+                HabitRowModel row = getItem(position);
+                if (!row.isCheckEnabled()) return;
+                boolean isCompleted = row.isCompleted();
+                // Animate the checkmark
+                animateCheck(v, !isCompleted, row.getPalette(),
+                        () -> listener.onCheckClick(row.getHabit(), position, !isCompleted));
             });
 
             // Click listener for the whole card
             cardView.setOnClickListener(v -> {
-                if (listener != null) {
-                    listener.onHabitClick(habit, position);
+                int position = getBindingAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onHabitClick(getItem(position).getHabit(), position);
                 }
             });
 
             // Long click listener for edit/delete
             cardView.setOnLongClickListener(v -> {
-                if (listener != null) {
-                    listener.onHabitLongClick(habit, position);
+                int position = getBindingAdapterPosition();
+                if (listener != null && position != RecyclerView.NO_POSITION) {
+                    listener.onHabitLongClick(getItem(position).getHabit(), position);
                     return true;
                 }
                 return false;
             });
         }
 
-        /**
-         * Update UI based on completion status
-         */
-        private void updateCompletionUI(boolean isCompleted) {
-            if (isCompleted) {
-                checkImageView.setImageResource(R.drawable.ic_check_circle);
-                checkImageView.setColorFilter(cardView.getContext().getResources().getColor(R.color.colorSuccess));
-                cardView.setAlpha(0.7f);
-            } else {
-                checkImageView.setImageResource(R.drawable.ic_check_circle_outline);
-                checkImageView.setColorFilter(cardView.getContext().getResources().getColor(R.color.colorGray));
-                cardView.setAlpha(1.0f);
+        void bind(HabitRowModel row) {
+            nameTextView.setText(row.getName());
+            goalTextView.setText(row.getGoal());
+            streakTextView.setText(row.getStreakLabel());
+            colorIndicator.setBackgroundColor(row.getColor());
+
+            if (row.getIconResourceId() != boundIconResourceId) {
+                boundIconResourceId = row.getIconResourceId();
+                iconImageView.setImageResource(boundIconResourceId);
             }
+
+            bindCompletion(row);
+            bindCheckEnabled(row);
+        }
+
+        void bindCompletion(HabitRowModel row) {
+            checkImageView.setImageResource(row.getCheckIconResourceId());
+            checkImageView.setImageTintList(row.getCheckTint());
+            cardView.setAlpha(row.getCardAlpha());
+        }
+
+        void bindCheckEnabled(HabitRowModel row) {
+            checkImageView.setEnabled(row.isCheckEnabled());
+            checkImageView.setAlpha(row.getCheckAlpha());
         }
 
         /**
          * Animate the checkmark when clicked
          * Shows a scaling animation for visual feedback
          */
-        private void animateCheck(View view, boolean isCompleting, Runnable onComplete) {
+        private void animateCheck(View view, boolean isCompleting, HabitRowModel.Palette palette, Runnable onComplete) {
             // Scale up
             ObjectAnimator scaleUp = ObjectAnimator.ofFloat(view, "scaleX", 1f, 1.3f);
             ObjectAnimator scaleUpY = ObjectAnimator.ofFloat(view, "scaleY", 1f, 1.3f);
@@ -213,14 +268,11 @@ public class HabitAdapter extends RecyclerView.Adapter<HabitAdapter.HabitViewHol
                 @Override
                 public void onAnimationEnd(Animator animation) {
                     // Update icon before scaling down
+                    checkImageView.setImageResource(HabitRowModel.checkIconResource(isCompleting));
+                    checkImageView.setImageTintList(palette.checkTint(isCompleting));
                     if (isCompleting) {
-                        checkImageView.setImageResource(R.drawable.ic_check_circle);
-                        checkImageView.setColorFilter(cardView.getContext().getResources().getColor(R.color.colorSuccess));
                         // Play completion sound
                         playCompletionSound();
-                    } else {
-                        checkImageView.setImageResource(R.drawable.ic_check_circle_outline);
-                        checkImageView.setColorFilter(cardView.getContext().getResources().getColor(R.color.colorGray));
                     }
                     
                     scaleDown.start();
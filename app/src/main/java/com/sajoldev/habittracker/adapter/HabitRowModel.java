@@ -0,0 +1,125 @@
+package com.sajoldev.habittracker.adapter;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+
+import androidx.core.content.ContextCompat;
+
+import com.sajoldev.habittracker.R;
+import com.sajoldev.habittracker.data.HabitSummary;
+import com.sajoldev.habittracker.utils.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * HabitRowModel - Everything a habit row shows for one selected date, ready to bind
+ * Built off the main thread together with the list; HabitAdapter only copies fields
+ * into views, so binding a row (even during a fast fling) computes and allocates nothing
+ */
+public final class HabitRowModel {
+
+    private static final float COMPLETED_CARD_ALPHA = 0.7f;
+    private static final float DISABLED_CHECK_ALPHA = 0.5f;
+
+    /**
+     * Checkmark tints, resolved once and shared by every row
+     */
+    public static final class Palette {
+        private final ColorStateList doneTint;
+        private final ColorStateList openTint;
+
+        private Palette(ColorStateList doneTint, ColorStateList openTint) {
+            this.doneTint = doneTint;
+            this.openTint = openTint;
+        }
+
+        public static Palette of(Context context) {
+            return new Palette(ColorStateList.valueOf(ContextCompat.getColor(context, R.color.colorSuccess)),
+                    ColorStateList.valueOf(ContextCompat.getColor(context, R.color.colorGray)));
+        }
+
+        public ColorStateList checkTint(boolean completed) {
+            return completed ? doneTint : openTint;
+        }
+    }
+
+    private final HabitSummary habit;
+    private final boolean completed;
+    private final boolean checkEnabled;
+    private final String streakLabel;
+    private final Palette palette;
+
+    private HabitRowModel(HabitSummary habit, boolean completed, boolean checkEnabled, String streakLabel,
+                          Palette palette) {
+        this.habit = habit;
+        this.completed = completed;
+        this.checkEnabled = checkEnabled;
+        this.streakLabel = streakLabel;
+        this.palette = palette;
+    }
+
+    /**
+     * Build the rows for a list of summaries queried for the selected day
+     * Call on a background thread
+     *
+     * @param dueOnly Keep only habits that existed and were due on the selected day
+     */
+    public static List<HabitRowModel> of(List<HabitSummary> habits, int selectedDay, int today, boolean dueOnly,
+                                         Palette palette) {
+        List<HabitRowModel> rows = new ArrayList<>(habits.size());
+        // Only today's habits can be checked off; other dates are read-only
+        boolean checkEnabled = selectedDay == today;
+        for (HabitSummary habit : habits) {
+            if (dueOnly && !isDue(habit, selectedDay)) continue;
+            boolean completed = habit.isCompleted();
+            rows.add(new HabitRowModel(habit, completed, checkEnabled,
+                    "🔥 " + habit.getCurrentStreak() + " day streak", palette));
+        }
+        return rows;
+    }
+
+    private static boolean isDue(HabitSummary habit, int epochDay) {
+        // Not before the habit was created
+        Date createdDate = habit.getCreatedDate();
+        if (createdDate != null && epochDay < DateUtils.toEpochDay(createdDate)) {
+            return false;
+        }
+        // Daily, Weekly (Mondays) or the custom days, from the habit's cached weekday mask
+        return habit.getSchedule().isScheduled(epochDay);
+    }
+
+    /** The summary the row was built from, for click callbacks */
+    public HabitSummary getHabit() { return habit; }
+
+    public int getId() { return habit.getId(); }
+
+    public String getName() { return habit.getName(); }
+
+    public String getGoal() { return habit.getGoal(); }
+
+    public int getColor() { return habit.getColor(); }
+
+    public int getIconResourceId() { return habit.getIconResourceId(); }
+
+    public boolean isCompleted() { return completed; }
+
+    public boolean isCheckEnabled() { return checkEnabled; }
+
+    public String getStreakLabel() { return streakLabel; }
+
+    public int getCheckIconResourceId() { return checkIconResource(completed); }
+
+    public ColorStateList getCheckTint() { return palette.checkTint(completed); }
+
+    public Palette getPalette() { return palette; }
+
+    public static int checkIconResource(boolean completed) {
+        return completed ? R.drawable.ic_check_circle : R.drawable.ic_check_circle_outline;
+    }
+
+    public float getCardAlpha() { return completed ? COMPLETED_CARD_ALPHA : 1.0f; }
+
+    public float getCheckAlpha() { return checkEnabled ? 1.0f : DISABLED_CHECK_ALPHA; }
+}
@@ -0,0 +1,24 @@
+package com.sajoldev.habittracker.data;
+
+/**
+ * CategoryCount - Query result: habits in one category and their completions in a range
+ * Habits without a category are grouped under "Other"
+ */
+public class CategoryCount {
+
+    private final String category;
+    private final int habitCount;
+    private final int completedCount;
+
+    public CategoryCount(String category, int habitCount, int completedCount) {
+        this.category = category;
+        this.habitCount = habitCount;
+        this.completedCount = completedCount;
+    }
+
+    public String getCategory() { return category; }
+
+    public int getHabitCount() { return habitCount; }
+
+    public int getCompletedCount() { return completedCount; }
+}
@@ -0,0 +1,22 @@
+package com.sajoldev.habittracker.data;
+
+import androidx.room.TypeConverter;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+
+/**
+ * TypeConverter for Room Database
+ * Stores a CompletionBitmap as its run-length encoded BLOB
+ */
+public class CompletionBitmapConverter {
+
+    @TypeConverter
+    public static CompletionBitmap fromBytes(byte[] value) {
+        return value == null ? null : CompletionBitmap.fromBytes(value);
+    }
+
+    @TypeConverter
+    public static byte[] toBytes(CompletionBitmap bitmap) {
+        return bitmap == null ? null : bitmap.toBytes();
+    }
+}
@@ -0,0 +1,122 @@
+package com.sajoldev.habittracker.data;
+
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitRecord;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+import java.util.Date;
+
+/**
+ * CompletionState - The columns a single check-in reads and writes
+ * Lets a toggle skip loading the rest of the habit row
+ */
+public class CompletionState {
+
+    private int id;
+    private CompletionBitmap completionBitmap;
+    private int currentStreak;
+    private int longestStreak;
+    private String frequency;
+    private String selectedDays;
+    private Date createdDate;
+    private int completionVersion;
+    private int bitmapVersion;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public CompletionBitmap getCompletionBitmap() {
+        return completionBitmap;
+    }
+
+    public void setCompletionBitmap(CompletionBitmap completionBitmap) {
+        this.completionBitmap = completionBitmap != null ? completionBitmap : new CompletionBitmap();
+    }
+
+    public int getCurrentStreak() {
+        return currentStreak;
+    }
+
+    public void setCurrentStreak(int currentStreak) {
+        this.currentStreak = currentStreak;
+    }
+
+    public int getLongestStreak() {
+        return longestStreak;
+    }
+
+    public void setLongestStreak(int longestStreak) {
+        this.longestStreak = longestStreak;
+    }
+
+    public String getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+    }
+
+    public String getSelectedDays() {
+        return selectedDays;
+    }
+
+    public void setSelectedDays(String selectedDays) {
+        this.selectedDays = selectedDays;
+    }
+
+    public Date getCreatedDate() {
+        return createdDate;
+    }
+
+    public void setCreatedDate(Date createdDate) {
+        this.createdDate = createdDate;
+    }
+
+    public int getCompletionVersion() {
+        return completionVersion;
+    }
+
+    public void setCompletionVersion(int completionVersion) {
+        this.completionVersion = completionVersion;
+    }
+
+    public int getBitmapVersion() {
+        return bitmapVersion;
+    }
+
+    public void setBitmapVersion(int bitmapVersion) {
+        this.bitmapVersion = bitmapVersion;
+    }
+
+    /**
+     * Whether the bitmap was built from the habit's current habit_completions rows
+     */
+    public boolean isBitmapCurrent() {
+        return bitmapVersion == completionVersion;
+    }
+
+    /**
+     * Get the days of the week this habit is due
+     */
+    public WeekdaySchedule getSchedule() {
+        return WeekdaySchedule.of(frequency, selectedDays);
+    }
+
+    /**
+     * Get this habit's history as a plain record for analytics, sharing the bitmap
+     */
+    public HabitRecord toRecord() {
+        HabitRecord record = new HabitRecord(id,
+                createdDate != null ? DateKeys.toEpochDay(createdDate) : DateKeys.INVALID,
+                getSchedule(), completionBitmap);
+        record.setCurrentStreak(currentStreak);
+        return record;
+    }
+}
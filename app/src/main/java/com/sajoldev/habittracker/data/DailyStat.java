@@ -0,0 +1,39 @@
+package com.sajoldev.habittracker.data;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * DailyStat - Room Database Entity
+ * One precomputed row per day, kept up to date by SQLite triggers on habits and
+ * habit_completions (see HabitDatabase.createDailyStatsTriggers)
+ * Calendars and charts read these rows instead of scanning every habit for every day
+ */
+@Entity(tableName = "daily_stats")
+public class DailyStat {
+
+    // Days since 1970-01-01 in local calendar terms (LocalDate.toEpochDay)
+    @PrimaryKey
+    private int epochDay;
+
+    // Completions recorded on this day across all habits
+    private int completedCount;
+
+    // Habits due on this day under their current schedule (created on or before it, not since deleted)
+    private int activeHabitCount;
+
+    public DailyStat(int epochDay, int completedCount, int activeHabitCount) {
+        this.epochDay = epochDay;
+        this.completedCount = completedCount;
+        this.activeHabitCount = activeHabitCount;
+    }
+
+    public int getEpochDay() { return epochDay; }
+    public void setEpochDay(int epochDay) { this.epochDay = epochDay; }
+
+    public int getCompletedCount() { return completedCount; }
+    public void setCompletedCount(int completedCount) { this.completedCount = completedCount; }
+
+    public int getActiveHabitCount() { return activeHabitCount; }
+    public void setActiveHabitCount(int activeHabitCount) { this.activeHabitCount = activeHabitCount; }
+}
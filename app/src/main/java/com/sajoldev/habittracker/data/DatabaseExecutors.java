@@ -0,0 +1,248 @@
+package com.sajoldev.habittracker.data;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DatabaseExecutors - Background threads for all database work
+ * Singleton, like HabitDatabase
+ *
+ * - write: one thread, so user edits are applied in the order they were made
+ * - read:  a small bounded pool for queries whose result is delivered to a callback
+ * - bulk:  one thread for imports and exports, so a long import never queues ahead of a check-in
+ *
+ * Each lane keeps queue depth and latency counters for diagnostics.
+ */
+public final class DatabaseExecutors {
+
+    private static final String TAG = "DatabaseExecutors";
+    private static final int READ_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static volatile DatabaseExecutors instance;
+
+    private final Lane write = new Lane("db-write", 1);
+    private final Lane read = new Lane("db-read", READ_THREADS);
+    private final Lane bulk = new Lane("db-bulk", 1);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the result of a background query on the main thread
+     */
+    public interface Callback<T> {
+        void onResult(T result);
+
+        /**
+         * Called on the main thread instead of onResult if the query threw
+         * Logs the failure and drops the result by default; override to recover
+         */
+        default void onError(Exception error) {
+            Log.e(TAG, "Query failed", error);
+        }
+    }
+
+    private DatabaseExecutors() {
+    }
+
+    /**
+     * Get singleton executors instance
+     */
+    public static DatabaseExecutors getInstance() {
+        if (instance == null) {
+            synchronized (DatabaseExecutors.class) {
+                if (instance == null) {
+                    instance = new DatabaseExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Serial lane for inserts, updates and deletes
+     */
+    public Lane write() {
+        return write;
+    }
+
+    /**
+     * Parallel lane for queries
+     */
+    public Lane read() {
+        return read;
+    }
+
+    /**
+     * Serial lane for imports, exports and other long jobs
+     */
+    public Lane bulk() {
+        return bulk;
+    }
+
+    /**
+     * Run a task on the main thread
+     */
+    public void main(Runnable task) {
+        mainHandler.post(task);
+    }
+
+    /**
+     * Run a query on the read lane and deliver its result, or its failure, on the main thread
+     */
+    public <T> void query(Callable<T> query, Callback<T> callback) {
+        read.execute(() -> {
+            T result;
+            try {
+                result = query.call();
+            } catch (Exception e) {
+                if (callback != null) {
+                    mainHandler.post(() -> callback.onError(e));
+                } else {
+                    Log.e(TAG, "Query failed", e);
+                }
+                return;
+            }
+            if (callback != null) {
+                mainHandler.post(() -> callback.onResult(result));
+            }
+        });
+    }
+
+    /**
+     * One named pool plus its diagnostics counters
+     */
+    public static final class Lane implements Executor {
+        private final String name;
+        private final ThreadPoolExecutor pool;
+
+        private final AtomicLong completedTasks = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        Lane(String name, int threads) {
+            this.name = name;
+            this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), new LaneThreadFactory(name));
+            this.pool.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Queue a task; failures are logged rather than crashing the pool thread
+         */
+        @Override
+        public void execute(Runnable task) {
+            long queuedAt = System.nanoTime();
+            pool.execute(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, name + " task failed", e);
+                } finally {
+                    record(startedAt - queuedAt, System.nanoTime() - startedAt);
+                }
+            });
+        }
+
+        /**
+         * Queue a task and get a Future for its result
+         */
+        public <T> Future<T> submit(Callable<T> task) {
+            FutureTask<T> future = new FutureTask<>(task);
+            long queuedAt = System.nanoTime();
+            pool.execute(() -> {
+                long startedAt = System.nanoTime();
+                future.run();
+                record(startedAt - queuedAt, System.nanoTime() - startedAt);
+            });
+            return future;
+        }
+
+        /**
+         * Number of tasks waiting to start
+         */
+        public int getQueueDepth() {
+            return pool.getQueue().size();
+        }
+
+        /**
+         * Number of tasks running right now
+         */
+        public int getActiveCount() {
+            return pool.getActiveCount();
+        }
+
+        public long getCompletedCount() {
+            return completedTasks.get();
+        }
+
+        /**
+         * Mean time tasks spent queued before starting
+         */
+        public double getAverageWaitMillis() {
+            long count = completedTasks.get();
+            return count == 0 ? 0 : totalWaitNanos.get() / 1e6 / count;
+        }
+
+        /**
+         * Longest time any task spent queued before starting
+         */
+        public double getMaxWaitMillis() {
+            return maxWaitNanos.get() / 1e6;
+        }
+
+        /**
+         * Mean time tasks spent running
+         */
+        public double getAverageRunMillis() {
+            long count = completedTasks.get();
+            return count == 0 ? 0 : totalRunNanos.get() / 1e6 / count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "%s: queued=%d active=%d done=%d wait(avg=%.1fms max=%.1fms) run(avg=%.1fms)",
+                    name, getQueueDepth(), getActiveCount(), getCompletedCount(),
+                    getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis());
+        }
+
+        private void record(long waitNanos, long runNanos) {
+            completedTasks.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            totalRunNanos.addAndGet(runNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+    }
+
+    private static final class LaneThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, name + "-" + count.incrementAndGet());
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.sajoldev.habittracker.data;
+
+/**
+ * DayCount - Query result: completions recorded on one day
+ * Produced by the GROUP BY queries in HabitDao; days without completions have no row
+ */
+public class DayCount {
+
+    // Days since 1970-01-01 in local calendar terms (LocalDate.toEpochDay)
+    private final int epochDay;
+    private final int count;
+
+    public DayCount(int epochDay, int count) {
+        this.epochDay = epochDay;
+        this.count = count;
+    }
+
+    public int getEpochDay() { return epochDay; }
+
+    public int getCount() { return count; }
+}
@@ -0,0 +1,37 @@
+package com.sajoldev.habittracker.data;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * HabitCompletion - Room Database Entity
+ * One row per habit per completed day, keyed by (habitId, epochDay)
+ * Replaces the old comma-joined completedDates column so a check-in only touches one small row
+ */
+@Entity(tableName = "habit_completions",
+        primaryKeys = {"habitId", "epochDay"},
+        foreignKeys = @ForeignKey(
+                entity = HabitEntity.class,
+                parentColumns = "id",
+                childColumns = "habitId",
+                onDelete = ForeignKey.CASCADE),
+        indices = @Index("epochDay"))
+public class HabitCompletion {
+
+    private int habitId;
+
+    // Days since 1970-01-01 in local calendar terms (LocalDate.toEpochDay)
+    private int epochDay;
+
+    public HabitCompletion(int habitId, int epochDay) {
+        this.habitId = habitId;
+        this.epochDay = epochDay;
+    }
+
+    public int getHabitId() { return habitId; }
+    public void setHabitId(int habitId) { this.habitId = habitId; }
+
+    public int getEpochDay() { return epochDay; }
+    public void setEpochDay(int epochDay) { this.epochDay = epochDay; }
+}
@@ -0,0 +1,23 @@
+package com.sajoldev.habittracker.data;
+
+/**
+ * HabitCompletionCount - Query result: one habit and its completions in a range
+ */
+public class HabitCompletionCount {
+
+    private final int habitId;
+    private final String name;
+    private final int completedCount;
+
+    public HabitCompletionCount(int habitId, String name, int completedCount) {
+        this.habitId = habitId;
+        this.name = name;
+        this.completedCount = completedCount;
+    }
+
+    public int getHabitId() { return habitId; }
+
+    public String getName() { return name; }
+
+    public int getCompletedCount() { return completedCount; }
+}
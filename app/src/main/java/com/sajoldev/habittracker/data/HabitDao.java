@@ -4,9 +4,17 @@ import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
-import androidx.room.Update;
+import androidx.room.Transaction;
 
+import com.sajoldev.habittracker.core.analytics.Streaks;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitRecord;
+import com.sajoldev.habittracker.core.model.StreakIndex;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -22,6 +30,28 @@ public interface HabitDao {
     @Query("SELECT * FROM habits ORDER BY id DESC")
     LiveData<List<HabitEntity>> getAllHabits();
 
+    /**
+     * Get list-screen summaries of all habits as LiveData
+     * Completion on the given day and the total completion count are computed in SQL,
+     * so no completion history is loaded
+     */
+    @Query("SELECT id, name, goal, color, iconResourceId, category, createdDate, frequency, selectedDays, "
+            + "currentStreak, longestStreak, "
+            + "(SELECT COUNT(*) FROM habit_completions c WHERE c.habitId = habits.id) AS completionCount, "
+            + "EXISTS(SELECT 1 FROM habit_completions c WHERE c.habitId = habits.id AND c.epochDay = :epochDay) AS completed "
+            + "FROM habits ORDER BY id DESC")
+    LiveData<List<HabitSummary>> getHabitSummaries(int epochDay);
+
+    /**
+     * Get list-screen summaries of all habits (for background operations)
+     */
+    @Query("SELECT id, name, goal, color, iconResourceId, category, createdDate, frequency, selectedDays, "
+            + "currentStreak, longestStreak, "
+            + "(SELECT COUNT(*) FROM habit_completions c WHERE c.habitId = habits.id) AS completionCount, "
+            + "EXISTS(SELECT 1 FROM habit_completions c WHERE c.habitId = habits.id AND c.epochDay = :epochDay) AS completed "
+            + "FROM habits ORDER BY id DESC")
+    List<HabitSummary> getHabitSummariesSync(int epochDay);
+
     /**
      * Get all habits as a regular list (for background operations)
      */
@@ -34,6 +64,19 @@ public interface HabitDao {
     @Query("SELECT * FROM habits WHERE id = :habitId")
     HabitEntity getHabitById(int habitId);
 
+    /**
+     * Get a specific habit by ID, with a bitmap that matches its habit_completions rows
+     */
+    @Transaction
+    default HabitEntity getCurrentHabitById(int habitId) {
+        HabitEntity habit = getHabitById(habitId);
+        if (habit != null && habit.getBitmapVersion() != habit.getCompletionVersion()) {
+            habit.setCompletionBitmap(getCompletionBitmapFromRows(habitId));
+            habit.setBitmapVersion(habit.getCompletionVersion());
+        }
+        return habit;
+    }
+
     /**
      * Insert a new habit
      * @return the ID of the newly inserted habit
@@ -42,10 +85,55 @@ public interface HabitDao {
     long insertHabit(HabitEntity habit);
 
     /**
-     * Update an existing habit
+     * Insert a new habit together with the completion history it carries
+     * Used by imports, where the history arrives with the habit
+     * @return the ID of the newly inserted habit
+     */
+    @Transaction
+    default long insertHabitWithCompletions(HabitEntity habit) {
+        int habitId = (int) insertHabit(habit);
+        int[] days = habit.getCompletedDays();
+        List<HabitCompletion> completions = new ArrayList<>(days.length);
+        for (int epochDay : days) {
+            completions.add(new HabitCompletion(habitId, epochDay));
+        }
+        insertCompletions(completions);
+        // The stored bitmap was built from the same days as the rows
+        markCompletionBitmapCurrent(habitId);
+        return habitId;
+    }
+
+    /**
+     * Update the editable details of an existing habit in a single transaction
+     * Completion history and check state are left as stored, since only setCompletedOnDay
+     * writes them; a stale entity therefore cannot overwrite newer check-ins. Streaks are
+     * rebuilt from the stored history, as a new schedule changes which days count
+     *
+     * @param today Today's epoch day, for the current streak
+     */
+    @Transaction
+    default void updateHabit(HabitEntity habit, int today) {
+        updateHabitDetails(habit.getId(), habit.getName(), habit.getGoal(), habit.getColor(),
+                habit.getIconResourceId(), habit.getCategory(), habit.getFrequency(), habit.getSelectedDays(),
+                habit.isReminderEnabled(), habit.getReminderHour(), habit.getReminderMinute());
+
+        CompletionState state = getCurrentCompletionState(habit.getId());
+        if (state == null) return;
+        WeekdaySchedule schedule = state.getSchedule();
+        StreakIndex index = StreakIndex.of(state.getCompletionBitmap(), schedule);
+        updateStreaks(habit.getId(), Streaks.currentStreak(index, schedule, today), index.longestStreak());
+    }
+
+    /**
+     * Update only the user-editable columns of a habit
      */
-    @Update
-    void updateHabit(HabitEntity habit);
+    @Query("UPDATE habits SET name = :name, goal = :goal, color = :color, iconResourceId = :iconResourceId, "
+            + "category = :category, frequency = :frequency, selectedDays = :selectedDays, "
+            + "reminderEnabled = :reminderEnabled, reminderHour = :reminderHour, reminderMinute = :reminderMinute "
+            + "WHERE id = :habitId")
+    void updateHabitDetails(int habitId, String name, String goal, int color, int iconResourceId, String category,
+                            String frequency, String selectedDays, boolean reminderEnabled, int reminderHour,
+                            int reminderMinute);
 
     /**
      * Delete a habit
@@ -71,12 +159,64 @@ public interface HabitDao {
     @Query("UPDATE habits SET currentStreak = :currentStreak, longestStreak = :longestStreak WHERE id = :habitId")
     void updateStreaks(int habitId, int currentStreak, int longestStreak);
 
+    /**
+     * Update streak information, unless the habit's completions or schedule changed since
+     * they were read
+     * @return 1 if stored, 0 otherwise
+     */
+    @Query("UPDATE habits SET currentStreak = :currentStreak, longestStreak = :longestStreak "
+            + "WHERE id = :habitId AND completionVersion = :completionVersion "
+            + "AND frequency IS :frequency AND selectedDays IS :selectedDays")
+    int updateStreaksIfUnchanged(int habitId, int currentStreak, int longestStreak, int completionVersion,
+                                 String frequency, String selectedDays);
+
     /**
      * Update completion status
      */
     @Query("UPDATE habits SET isCheckedToday = :isChecked, lastCheckedDate = :lastChecked WHERE id = :habitId")
     void updateCompletionStatus(int habitId, boolean isChecked, long lastChecked);
 
+    /**
+     * Clear isCheckedToday on habits last checked before the given time
+     * @return number of habits reset
+     */
+    @Query("UPDATE habits SET isCheckedToday = 0 WHERE isCheckedToday = 1 "
+            + "AND (lastCheckedDate IS NULL OR lastCheckedDate < :startOfToday)")
+    int resetStaleChecks(long startOfToday);
+
+    /**
+     * Get the completion columns of habits that currently have a streak
+     */
+    @Query("SELECT id, completionBitmap, currentStreak, longestStreak, frequency, selectedDays, createdDate, completionVersion, bitmapVersion FROM habits WHERE currentStreak > 0")
+    List<CompletionState> getActiveStreakStates();
+
+    /**
+     * Start a new day in a single transaction
+     * Resets yesterday's check flags and recalculates only the streaks that could have
+     * broken overnight, i.e. those still above zero
+     *
+     * @param today Today's epoch day
+     * @param startOfToday Local midnight at the start of today, in epoch millis
+     * @return number of streaks that changed
+     */
+    @Transaction
+    default int rollover(int today, long startOfToday) {
+        resetStaleChecks(startOfToday);
+
+        List<CompletionState> changed = new ArrayList<>();
+        for (CompletionState state : getActiveStreakStates()) {
+            withCurrentBitmap(state);
+            int currentStreak = Streaks.currentStreak(
+                    state.getCompletionBitmap(), state.getSchedule(), today);
+            if (currentStreak != state.getCurrentStreak()) {
+                state.setCurrentStreak(currentStreak);
+                changed.add(state);
+            }
+        }
+        updateStreaks(changed);
+        return changed.size();
+    }
+
     /**
      * Get total habit count
      */
@@ -88,4 +228,341 @@ public interface HabitDao {
      */
     @Query("SELECT COUNT(*) FROM habits WHERE isCheckedToday = 1")
     int getCompletedHabitsCount();
+
+    /**
+     * Record a completion for one day (no-op if already recorded)
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertCompletion(HabitCompletion completion);
+
+    /**
+     * Record several completions at once
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertCompletions(List<HabitCompletion> completions);
+
+    /**
+     * Remove the completion for one day
+     */
+    @Query("DELETE FROM habit_completions WHERE habitId = :habitId AND epochDay = :epochDay")
+    void deleteCompletion(int habitId, int epochDay);
+
+    /**
+     * Get only the completion columns of a habit
+     */
+    @Query("SELECT id, completionBitmap, currentStreak, longestStreak, frequency, selectedDays, createdDate, completionVersion, bitmapVersion FROM habits WHERE id = :habitId")
+    CompletionState getCompletionState(int habitId);
+
+    /**
+     * Get the completion columns of every habit
+     */
+    @Query("SELECT id, completionBitmap, currentStreak, longestStreak, frequency, selectedDays, createdDate, completionVersion, bitmapVersion FROM habits")
+    List<CompletionState> getAllCompletionStates();
+
+    /**
+     * Get the completion columns of a habit, with a bitmap that matches its habit_completions rows
+     * @return the state, or null if the habit is gone
+     */
+    @Transaction
+    default CompletionState getCurrentCompletionState(int habitId) {
+        return withCurrentBitmap(getCompletionState(habitId));
+    }
+
+    /**
+     * Get the completion columns of every habit, with bitmaps that match their habit_completions rows
+     */
+    @Transaction
+    default List<CompletionState> getCurrentCompletionStates() {
+        List<CompletionState> states = getAllCompletionStates();
+        for (CompletionState state : states) {
+            withCurrentBitmap(state);
+        }
+        return states;
+    }
+
+    /**
+     * Get every habit's history for analytics, with bitmaps that match the habit_completions rows
+     */
+    @Transaction
+    default List<HabitRecord> getHabitRecords() {
+        List<CompletionState> states = getCurrentCompletionStates();
+        List<HabitRecord> records = new ArrayList<>(states.size());
+        for (CompletionState state : states) {
+            records.add(state.toRecord());
+        }
+        return records;
+    }
+
+    /**
+     * A value that changes whenever a habit is added or removed, a completion is written
+     * or a current streak is stored, as LiveData
+     * Cheap to query on every invalidation: no history is loaded or decoded
+     */
+    @Query("SELECT COUNT(*) || ':' || IFNULL(MAX(id), 0) || ':' || IFNULL(SUM(completionVersion), 0) "
+            + "|| ':' || IFNULL(SUM(currentStreak * id), 0) FROM habits")
+    LiveData<String> observeHistoryVersion();
+
+    /**
+     * Rebuild a state's bitmap from the habit_completions rows if the stored one is stale
+     * Only the state changes; syncCompletionBitmaps writes stale bitmaps back
+     */
+    default CompletionState withCurrentBitmap(CompletionState state) {
+        if (state != null && !state.isBitmapCurrent()) {
+            state.setCompletionBitmap(getCompletionBitmapFromRows(state.getId()));
+            state.setBitmapVersion(state.getCompletionVersion());
+        }
+        return state;
+    }
+
+    /**
+     * Build a habit's bitmap from its habit_completions rows
+     */
+    default CompletionBitmap getCompletionBitmapFromRows(int habitId) {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        for (int epochDay : getCompletedDays(habitId)) {
+            bitmap.add(epochDay);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get every completed day of a habit, oldest first
+     */
+    @Query("SELECT epochDay FROM habit_completions WHERE habitId = :habitId ORDER BY epochDay")
+    List<Integer> getCompletedDays(int habitId);
+
+    /**
+     * Get every completion row, grouped by habit and oldest first within each
+     */
+    @Query("SELECT * FROM habit_completions ORDER BY habitId, epochDay")
+    List<HabitCompletion> getAllCompletions();
+
+    /**
+     * Get the habits whose stored bitmap is behind their habit_completions rows
+     */
+    @Query("SELECT id FROM habits WHERE bitmapVersion != completionVersion")
+    List<Integer> getStaleBitmapIds();
+
+    /**
+     * Store a bitmap built from the rows at the given completionVersion
+     * Nothing is written if the habit's rows changed since
+     * @return 1 if stored, 0 otherwise
+     */
+    @Query("UPDATE habits SET completionBitmap = :bitmap, bitmapVersion = :completionVersion "
+            + "WHERE id = :habitId AND completionVersion = :completionVersion")
+    int storeCompletionBitmap(int habitId, CompletionBitmap bitmap, int completionVersion);
+
+    /**
+     * Record that a habit's stored bitmap matches its rows as they are now
+     */
+    @Query("UPDATE habits SET bitmapVersion = completionVersion WHERE id = :habitId")
+    void markCompletionBitmapCurrent(int habitId);
+
+    /**
+     * Write back every stale bitmap, rebuilt from the habit_completions rows
+     * Each habit is read and written on its own, so no long transaction is held; a habit
+     * checked in again meanwhile stays stale until the next sync
+     * @return number of bitmaps written
+     */
+    default int syncCompletionBitmaps() {
+        int written = 0;
+        for (int habitId : getStaleBitmapIds()) {
+            CompletionState state = getCurrentCompletionState(habitId);
+            if (state != null) {
+                written += storeCompletionBitmap(habitId, state.getCompletionBitmap(), state.getCompletionVersion());
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Store the streaks of several habits in a single transaction
+     */
+    @Transaction
+    default void updateStreaks(List<CompletionState> states) {
+        for (CompletionState state : states) {
+            updateStreaks(state.getId(), state.getCurrentStreak(), state.getLongestStreak());
+        }
+    }
+
+    /**
+     * Days of history loaded either side of a toggled day at first
+     * Doubled until the runs the toggle touches fit inside
+     */
+    int RUN_WINDOW_DAYS = 64;
+
+    /**
+     * Get the schedule and streak columns of a habit
+     */
+    @Query("SELECT id, currentStreak, longestStreak, frequency, selectedDays FROM habits WHERE id = :habitId")
+    StreakState getStreakState(int habitId);
+
+    /**
+     * Store the streaks and today's check state
+     */
+    @Query("UPDATE habits SET currentStreak = :currentStreak, longestStreak = :longestStreak, "
+            + "isCheckedToday = :isCheckedToday, lastCheckedDate = :lastChecked WHERE id = :habitId")
+    void updateCheckState(int habitId, int currentStreak, int longestStreak, boolean isCheckedToday, long lastChecked);
+
+    /**
+     * Build a bitmap of a habit's completed days within a range (inclusive)
+     */
+    default CompletionBitmap getCompletionBitmapBetween(int habitId, int startDay, int endDay) {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        for (int epochDay : getCompletedDaysBetween(habitId, startDay, endDay)) {
+            bitmap.add(epochDay);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Load the completed days around a day and today, counting that day as completed
+     * The range grows until it holds the whole run through the day and the whole run
+     * up to today, so streaks measured on it match the full history
+     */
+    default CompletionBitmap getRunWindow(int habitId, WeekdaySchedule schedule, int epochDay, int today) {
+        int from = Math.min(epochDay, today);
+        int to = Math.max(epochDay, today);
+        for (int span = RUN_WINDOW_DAYS; ; span *= 2) {
+            int startDay = from - span;
+            int endDay = to + span;
+            CompletionBitmap window = getCompletionBitmapBetween(habitId, startDay, endDay);
+            window.add(epochDay);
+            if (window.previousClearDay(epochDay, schedule) >= startDay
+                    && window.nextClearDay(epochDay, schedule) <= endDay
+                    && window.previousClearDay(today, schedule) >= startDay) {
+                return window;
+            }
+        }
+    }
+
+    /**
+     * Mark or unmark one day in a single transaction
+     * Streaks are updated from the runs next to the toggled day, read with range queries
+     * on habit_completions; the whole history is read only when a day is unmarked from the
+     * longest run. Only the completion row and the streak and check columns are written;
+     * the stored bitmap goes stale and is brought up to date by syncCompletionBitmaps
+     *
+     * @param today Today's epoch day, for the current streak and isCheckedToday
+     * @return true if the day changed, false if it was already in that state or the habit is gone
+     */
+    @Transaction
+    default boolean setCompletedOnDay(int habitId, int epochDay, boolean completed, int today) {
+        StreakState state = getStreakState(habitId);
+        if (state == null) return false;
+        boolean wasCompleted = getCompletionCountBetween(habitId, epochDay, epochDay) > 0;
+        if (wasCompleted == completed) return false;
+
+        WeekdaySchedule schedule = state.getSchedule();
+        CompletionBitmap window = getRunWindow(habitId, schedule, epochDay, today);
+        // The run through the day once marked, or before it is unmarked and splits
+        int runThroughDay = Streaks.runLengthAround(window, schedule, epochDay);
+        if (completed) {
+            insertCompletion(new HabitCompletion(habitId, epochDay));
+        } else {
+            deleteCompletion(habitId, epochDay);
+            window.remove(epochDay);
+        }
+
+        int currentStreak = Streaks.currentStreak(window, schedule, today);
+        int longestStreak = state.getLongestStreak();
+        if (completed) {
+            // Marking a day can join the runs on either side of it
+            longestStreak = Math.max(longestStreak, Math.max(currentStreak, runThroughDay));
+        } else if (runThroughDay >= longestStreak) {
+            // Unmarking a day of the longest run may shorten it; only then rescan the runs
+            longestStreak = StreakIndex.of(getCompletionBitmapFromRows(habitId), schedule).longestStreak();
+        }
+
+        updateCheckState(habitId, currentStreak, longestStreak, window.contains(today), System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Get the completed days of a habit within a range (inclusive), oldest first
+     */
+    @Query("SELECT epochDay FROM habit_completions WHERE habitId = :habitId AND epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay")
+    List<Integer> getCompletedDaysBetween(int habitId, int startDay, int endDay);
+
+    /**
+     * Count the completions of a habit within a range (inclusive)
+     */
+    @Query("SELECT COUNT(*) FROM habit_completions WHERE habitId = :habitId AND epochDay BETWEEN :startDay AND :endDay")
+    int getCompletionCountBetween(int habitId, int startDay, int endDay);
+
+    /**
+     * Get the precomputed stats for each day within a range (inclusive), oldest first
+     * Days with no completion recorded have no row
+     */
+    @Query("SELECT * FROM daily_stats WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay")
+    List<DailyStat> getDailyStats(int startDay, int endDay);
+
+    /**
+     * Precomputed per-day stats within a range (inclusive) as LiveData
+     */
+    @Query("SELECT * FROM daily_stats WHERE epochDay BETWEEN :startDay AND :endDay ORDER BY epochDay")
+    LiveData<List<DailyStat>> observeDailyStats(int startDay, int endDay);
+
+    /**
+     * Completions per day within a range (inclusive), read from daily_stats
+     */
+    @Query("SELECT epochDay, completedCount AS count FROM daily_stats "
+            + "WHERE epochDay BETWEEN :startDay AND :endDay AND completedCount > 0 ORDER BY epochDay")
+    LiveData<List<DayCount>> observeDailyTotals(int startDay, int endDay);
+
+    /**
+     * Completions per week for weeks starting within a range (inclusive), read from weekly_stats
+     */
+    @Query("SELECT weekStartDay AS epochDay, completedCount AS count FROM weekly_stats "
+            + "WHERE weekStartDay BETWEEN :startDay AND :endDay AND completedCount > 0 ORDER BY weekStartDay")
+    LiveData<List<DayCount>> observeWeeklyTotals(int startDay, int endDay);
+
+    /**
+     * Completions per month for months starting within a range (inclusive), read from monthly_stats
+     */
+    @Query("SELECT monthStartDay AS epochDay, completedCount AS count FROM monthly_stats "
+            + "WHERE monthStartDay BETWEEN :startDay AND :endDay AND completedCount > 0 ORDER BY monthStartDay")
+    LiveData<List<DayCount>> observeMonthlyTotals(int startDay, int endDay);
+
+    /**
+     * Count completions per day within a range (inclusive), oldest first
+     * Grouped over the epochDay index; days without completions have no row
+     */
+    @Query("SELECT epochDay, COUNT(*) AS count FROM habit_completions "
+            + "WHERE epochDay BETWEEN :startDay AND :endDay GROUP BY epochDay ORDER BY epochDay")
+    LiveData<List<DayCount>> observeCompletionsPerDay(int startDay, int endDay);
+
+    /**
+     * Count one habit's completions per day within a range (inclusive), oldest first
+     */
+    @Query("SELECT epochDay, COUNT(*) AS count FROM habit_completions "
+            + "WHERE habitId = :habitId AND epochDay BETWEEN :startDay AND :endDay GROUP BY epochDay ORDER BY epochDay")
+    LiveData<List<DayCount>> observeCompletionsPerDay(int habitId, int startDay, int endDay);
+
+    /**
+     * Count completions per day of the week within a range (inclusive), Monday first
+     */
+    @Query("SELECT (epochDay + 3) % 7 AS weekday, COUNT(*) AS count FROM habit_completions "
+            + "WHERE epochDay BETWEEN :startDay AND :endDay GROUP BY weekday ORDER BY weekday")
+    LiveData<List<WeekdayCount>> observeCompletionsPerWeekday(int startDay, int endDay);
+
+    /**
+     * Count habits per category, with their completions within a range (inclusive)
+     * Largest category first
+     */
+    @Query("SELECT COALESCE(category, 'Other') AS category, COUNT(*) AS habitCount, "
+            + "SUM((SELECT COUNT(*) FROM habit_completions c WHERE c.habitId = h.id "
+            + "AND c.epochDay BETWEEN :startDay AND :endDay)) AS completedCount "
+            + "FROM habits h GROUP BY COALESCE(category, 'Other') ORDER BY habitCount DESC, category")
+    LiveData<List<CategoryCount>> observeCategoryCounts(int startDay, int endDay);
+
+    /**
+     * Count each habit's completions within a range (inclusive), newest habit first
+     * Each count is a seek on the (habitId, epochDay) primary key
+     */
+    @Query("SELECT h.id AS habitId, h.name AS name, "
+            + "(SELECT COUNT(*) FROM habit_completions c WHERE c.habitId = h.id "
+            + "AND c.epochDay BETWEEN :startDay AND :endDay) AS completedCount "
+            + "FROM habits h ORDER BY h.id DESC")
+    LiveData<List<HabitCompletionCount>> observeHabitCompletionCounts(int startDay, int endDay);
 }
@@ -1,24 +1,354 @@
 package com.sajoldev.habittracker.data;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
 
 /**
  * HabitDatabase - Room Database
  * Singleton pattern for database instance
  * Version 2: Updated schema after DAO method changes
+ * Version 3: Completion history moved from habits.completedDates to the habit_completions table
+ * Version 4: Added habits.completionBitmap, a compressed copy of each habit's history
+ * Version 5: Added the trigger-maintained daily_stats table
+ * Version 6: Added the trigger-maintained weekly_stats and monthly_stats rollups
+ * Version 7: habit_completions is the record of completions; habits.completionVersion and
+ *            bitmapVersion tell whether completionBitmap is still in step with it
+ * Version 8: daily_stats.activeHabitCount counts only the habits due on each day
  */
-@Database(entities = {HabitEntity.class}, version = 2, exportSchema = false)
-@TypeConverters({DateConverter.class, StringSetConverter.class})
+@Database(entities = {HabitEntity.class, HabitCompletion.class, DailyStat.class, WeeklyStat.class, MonthlyStat.class},
+        version = HabitDatabase.VERSION, exportSchema = true)
+@TypeConverters({DateConverter.class, CompletionBitmapConverter.class})
 public abstract class HabitDatabase extends RoomDatabase {
 
+    public static final int VERSION = 8;
+
     private static final String DATABASE_NAME = "habit_tracker_db";
     private static HabitDatabase instance;
 
+    /**
+     * Migration 2 -> 3
+     * Splits every comma-joined completedDates value into habit_completions rows,
+     * then rebuilds habits without the completedDates column
+     * (SQLite on API 26 has no ALTER TABLE ... DROP COLUMN)
+     */
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `habit_completions` ("
+                    + "`habitId` INTEGER NOT NULL, "
+                    + "`epochDay` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`habitId`, `epochDay`), "
+                    + "FOREIGN KEY(`habitId`) REFERENCES `habits`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_habit_completions_epochDay` ON `habit_completions` (`epochDay`)");
+
+            ContentValues values = new ContentValues();
+            try (Cursor cursor = db.query("SELECT id, completedDates FROM habits")) {
+                while (cursor.moveToNext()) {
+                    int habitId = cursor.getInt(0);
+                    String joined = cursor.isNull(1) ? "" : cursor.getString(1);
+                    for (String dateStr : joined.split(",")) {
+                        int epochDay = DateConverter.keyToEpochDay(dateStr);
+                        if (epochDay == Integer.MIN_VALUE) continue;
+                        values.clear();
+                        values.put("habitId", habitId);
+                        values.put("epochDay", epochDay);
+                        db.insert("habit_completions", SQLiteDatabase.CONFLICT_IGNORE, values);
+                    }
+                }
+            }
+
+            String columns = "`id`, `name`, `goal`, `color`, `iconResourceId`, `category`, `createdDate`, "
+                    + "`frequency`, `selectedDays`, `reminderEnabled`, `reminderHour`, `reminderMinute`, "
+                    + "`currentStreak`, `longestStreak`, `lastCheckedDate`, `isCheckedToday`";
+            db.execSQL("CREATE TABLE IF NOT EXISTS `habits_new` ("
+                    + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`name` TEXT, "
+                    + "`goal` TEXT, "
+                    + "`color` INTEGER NOT NULL, "
+                    + "`iconResourceId` INTEGER NOT NULL, "
+                    + "`category` TEXT, "
+                    + "`createdDate` INTEGER, "
+                    + "`frequency` TEXT, "
+                    + "`selectedDays` TEXT, "
+                    + "`reminderEnabled` INTEGER NOT NULL, "
+                    + "`reminderHour` INTEGER NOT NULL, "
+                    + "`reminderMinute` INTEGER NOT NULL, "
+                    + "`currentStreak` INTEGER NOT NULL, "
+                    + "`longestStreak` INTEGER NOT NULL, "
+                    + "`lastCheckedDate` INTEGER, "
+                    + "`isCheckedToday` INTEGER NOT NULL)");
+            db.execSQL("INSERT INTO `habits_new` (" + columns + ") SELECT " + columns + " FROM `habits`");
+            db.execSQL("DROP TABLE `habits`");
+            db.execSQL("ALTER TABLE `habits_new` RENAME TO `habits`");
+        }
+    };
+
+    /**
+     * Migration 3 -> 4
+     * Adds the completionBitmap column and fills it from the existing habit_completions rows
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `habits` ADD COLUMN `completionBitmap` BLOB");
+
+            int currentHabitId = -1;
+            CompletionBitmap bitmap = null;
+            ContentValues values = new ContentValues();
+            try (Cursor cursor = db.query("SELECT habitId, epochDay FROM habit_completions ORDER BY habitId")) {
+                while (cursor.moveToNext()) {
+                    int habitId = cursor.getInt(0);
+                    if (habitId != currentHabitId) {
+                        storeBitmap(db, values, currentHabitId, bitmap);
+                        currentHabitId = habitId;
+                        bitmap = new CompletionBitmap();
+                    }
+                    bitmap.add(cursor.getInt(1));
+                }
+            }
+            storeBitmap(db, values, currentHabitId, bitmap);
+        }
+
+        private void storeBitmap(SupportSQLiteDatabase db, ContentValues values, int habitId, CompletionBitmap bitmap) {
+            if (bitmap == null) return;
+            values.clear();
+            values.put("completionBitmap", bitmap.toBytes());
+            db.update("habits", SQLiteDatabase.CONFLICT_NONE, values, "id = ?", new Object[]{habitId});
+        }
+    };
+
+    /**
+     * Migration 4 -> 5
+     * Creates daily_stats and fills it from the existing completions
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `daily_stats` ("
+                    + "`epochDay` INTEGER NOT NULL, "
+                    + "`completedCount` INTEGER NOT NULL, "
+                    + "`activeHabitCount` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`epochDay`))");
+            db.execSQL("INSERT INTO daily_stats (epochDay, completedCount, activeHabitCount) "
+                    + "SELECT c.epochDay, COUNT(*), " + activeHabitCount("c.epochDay") + " "
+                    + "FROM habit_completions c GROUP BY c.epochDay");
+            createDailyStatsTriggers(db);
+        }
+    };
+
+    /**
+     * Migration 5 -> 6
+     * Creates weekly_stats and monthly_stats and fills them from the existing completions
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `weekly_stats` ("
+                    + "`weekStartDay` INTEGER NOT NULL, "
+                    + "`completedCount` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`weekStartDay`))");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `monthly_stats` ("
+                    + "`monthStartDay` INTEGER NOT NULL, "
+                    + "`completedCount` INTEGER NOT NULL, "
+                    + "PRIMARY KEY(`monthStartDay`))");
+            db.execSQL("INSERT INTO weekly_stats (weekStartDay, completedCount) "
+                    + "SELECT " + weekStart("epochDay") + " AS week, COUNT(*) FROM habit_completions GROUP BY week");
+            db.execSQL("INSERT INTO monthly_stats (monthStartDay, completedCount) "
+                    + "SELECT " + monthStart("epochDay") + " AS month, COUNT(*) FROM habit_completions GROUP BY month");
+            createRollupTriggers(db);
+        }
+    };
+
+    /**
+     * Migration 6 -> 7
+     * Adds the version columns and the triggers that bump completionVersion
+     * Existing bitmaps start out as current; StreakRecomputeJob, which runs after every
+     * schema change, rebuilds any that disagree with habit_completions
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `habits` ADD COLUMN `completionVersion` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `habits` ADD COLUMN `bitmapVersion` INTEGER NOT NULL DEFAULT 0");
+            createCompletionVersionTriggers(db);
+        }
+    };
+
+    /**
+     * Migration 7 -> 8
+     * Recounts daily_stats.activeHabitCount by schedule and replaces the triggers that
+     * counted every habit on every day since it was created
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("DROP TRIGGER IF EXISTS daily_stats_completion_insert");
+            db.execSQL("DROP TRIGGER IF EXISTS daily_stats_habit_insert");
+            db.execSQL("DROP TRIGGER IF EXISTS daily_stats_habit_delete");
+            db.execSQL("UPDATE daily_stats SET activeHabitCount = " + activeHabitCount("daily_stats.epochDay"));
+            createDailyStatsTriggers(db);
+        }
+    };
+
+    /**
+     * Bumps habits.completionVersion on every write to habit_completions, whichever path
+     * makes it, so a bitmap built from older rows is known to be stale.
+     * IF NOT EXISTS makes this safe to run on every open.
+     */
+    static void createCompletionVersionTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS completion_version_insert "
+                + "AFTER INSERT ON habit_completions BEGIN "
+                + "UPDATE habits SET completionVersion = completionVersion + 1 WHERE id = NEW.habitId; "
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS completion_version_delete "
+                + "AFTER DELETE ON habit_completions BEGIN "
+                + "UPDATE habits SET completionVersion = completionVersion + 1 WHERE id = OLD.habitId; "
+                + "END");
+    }
+
+    /**
+     * Keeps daily_stats in step with every write to habits and habit_completions,
+     * including cascaded deletes and imports, without any help from the Java write path.
+     * IF NOT EXISTS makes this safe to run on every open.
+     */
+    static void createDailyStatsTriggers(SupportSQLiteDatabase db) {
+        // A completion creates its day's row on first use, then bumps the count
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_stats_completion_insert "
+                + "AFTER INSERT ON habit_completions BEGIN "
+                + "INSERT OR IGNORE INTO daily_stats (epochDay, completedCount, activeHabitCount) "
+                + "VALUES (NEW.epochDay, 0, " + activeHabitCount("NEW.epochDay") + "); "
+                + "UPDATE daily_stats SET completedCount = completedCount + 1 WHERE epochDay = NEW.epochDay; "
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_stats_completion_delete "
+                + "AFTER DELETE ON habit_completions BEGIN "
+                + "UPDATE daily_stats SET completedCount = completedCount - 1 WHERE epochDay = OLD.epochDay; "
+                + "END");
+        // A habit counts as active on the days it is due, from the one it was created on
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_stats_habit_insert "
+                + "AFTER INSERT ON habits BEGIN "
+                + "UPDATE daily_stats SET activeHabitCount = activeHabitCount + 1 "
+                + "WHERE " + isActiveOn("NEW", "epochDay") + "; "
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_stats_habit_delete "
+                + "AFTER DELETE ON habits BEGIN "
+                + "UPDATE daily_stats SET activeHabitCount = activeHabitCount - 1 "
+                + "WHERE " + isActiveOn("OLD", "epochDay") + "; "
+                + "END");
+        // Schedules apply to the whole history, as they do for streaks, so an edit
+        // moves the habit between past days as well; comparisons count as 0 or 1
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS daily_stats_habit_update "
+                + "AFTER UPDATE OF createdDate, frequency, selectedDays ON habits BEGIN "
+                + "UPDATE daily_stats SET activeHabitCount = activeHabitCount "
+                + "- (" + isActiveOn("OLD", "epochDay") + ") + (" + isActiveOn("NEW", "epochDay") + "); "
+                + "END");
+    }
+
+    /**
+     * SQL for the number of habits due on an epoch day
+     */
+    private static String activeHabitCount(String epochDay) {
+        return "(SELECT COUNT(*) FROM habits h WHERE " + isActiveOn("h", epochDay) + ")";
+    }
+
+    /**
+     * SQL for whether a habits row existed on an epoch day and was due on it
+     */
+    private static String isActiveOn(String table, String epochDay) {
+        return "(" + createdDay(table) + " <= " + epochDay + " AND " + isDueOn(table, epochDay) + ")";
+    }
+
+    /**
+     * SQL for whether a habits row is due on an epoch day, matching WeekdaySchedule.of:
+     * Weekly habits are due on Mondays, Custom habits on the named weekdays, and
+     * everything else, including Custom with no recognised day, on every day
+     */
+    private static String isDueOn(String table, String epochDay) {
+        String days = "(',' || replace(lower(" + table + ".selectedDays), ' ', '') || ',')";
+        StringBuilder anyDay = new StringBuilder("(0");
+        for (String name : DAY_NAMES) {
+            anyDay.append(" OR instr(").append(days).append(", ',").append(name).append(",') > 0");
+        }
+        anyDay.append(")");
+        String weekdayName = "substr('" + String.join("", DAY_NAMES) + "', "
+                + "(" + epochDay + " + 3) % 7 * 3 + 1, 3)";
+        return "(CASE WHEN " + table + ".frequency = 'Weekly' THEN (" + epochDay + " + 3) % 7 = 0 "
+                + "WHEN " + table + ".frequency = 'Custom' AND " + anyDay + " "
+                + "THEN instr(" + days + ", ',' || " + weekdayName + " || ',') > 0 "
+                + "ELSE 1 END)";
+    }
+
+    // Monday first, as in WeekdaySchedule
+    private static final String[] DAY_NAMES = {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
+
+    /**
+     * Keeps weekly_stats and monthly_stats in step with habit_completions, one row
+     * touched per table per completion. IF NOT EXISTS makes this safe to run on every open.
+     */
+    static void createRollupTriggers(SupportSQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS rollup_stats_completion_insert "
+                + "AFTER INSERT ON habit_completions BEGIN "
+                + "INSERT OR IGNORE INTO weekly_stats (weekStartDay, completedCount) "
+                + "VALUES (" + weekStart("NEW.epochDay") + ", 0); "
+                + "UPDATE weekly_stats SET completedCount = completedCount + 1 "
+                + "WHERE weekStartDay = " + weekStart("NEW.epochDay") + "; "
+                + "INSERT OR IGNORE INTO monthly_stats (monthStartDay, completedCount) "
+                + "VALUES (" + monthStart("NEW.epochDay") + ", 0); "
+                + "UPDATE monthly_stats SET completedCount = completedCount + 1 "
+                + "WHERE monthStartDay = " + monthStart("NEW.epochDay") + "; "
+                + "END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS rollup_stats_completion_delete "
+                + "AFTER DELETE ON habit_completions BEGIN "
+                + "UPDATE weekly_stats SET completedCount = completedCount - 1 "
+                + "WHERE weekStartDay = " + weekStart("OLD.epochDay") + "; "
+                + "UPDATE monthly_stats SET completedCount = completedCount - 1 "
+                + "WHERE monthStartDay = " + monthStart("OLD.epochDay") + "; "
+                + "END");
+    }
+
+    /**
+     * SQL for the epoch day of the Monday on or before an epoch day
+     */
+    private static String weekStart(String epochDay) {
+        return "(" + epochDay + " - (" + epochDay + " + 3) % 7)";
+    }
+
+    /**
+     * SQL for the epoch day of the first of the month containing an epoch day
+     * Epoch days are local calendar days, so reading them as UTC dates is exact
+     */
+    private static String monthStart(String epochDay) {
+        return "CAST(julianday(" + epochDay + " * 86400, 'unixepoch', 'start of month') - 2440587.5 AS INTEGER)";
+    }
+
+    /**
+     * SQL for the local epoch day of a habits row's createdDate (stored as epoch millis)
+     */
+    private static String createdDay(String table) {
+        return "CAST(julianday(" + table + ".createdDate / 1000, 'unixepoch', 'localtime', 'start of day') - 2440587.5 AS INTEGER)";
+    }
+
+    private static final Callback TRIGGERS_CALLBACK = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            // Covers fresh installs and destructive migrations as well as upgrades
+            createDailyStatsTriggers(db);
+            createRollupTriggers(db);
+            createCompletionVersionTriggers(db);
+        }
+    };
+
     /**
      * Get singleton database instance
      * Thread-safe implementation
@@ -30,6 +360,8 @@ public abstract class HabitDatabase extends RoomDatabase {
                     HabitDatabase.class,
                     DATABASE_NAME
             )
+            .addMigrations(MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8)
+            .addCallback(TRIGGERS_CALLBACK)
             .fallbackToDestructiveMigration() // For development; use proper migration in production
             .build();
         }
@@ -1,20 +1,29 @@
 package com.sajoldev.habittracker.data;
 
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
+import androidx.room.Ignore;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.CompletionIndex;
+import com.sajoldev.habittracker.core.model.HabitHistory;
+import com.sajoldev.habittracker.core.model.StreakIndex;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
 /**
  * HabitEntity - Room Database Entity
  * Stores all habit information including completion history for streak calculation
  */
 @Entity(tableName = "habits")
-@TypeConverters({DateConverter.class, StringSetConverter.class})
-public class HabitEntity {
+@TypeConverters({DateConverter.class, CompletionBitmapConverter.class})
+public class HabitEntity implements HabitHistory {
 
     @PrimaryKey(autoGenerate = true)
     private int id;
@@ -39,8 +48,29 @@ public class HabitEntity {
     private int currentStreak;
     private int longestStreak;
 
-    // Set of dates (in "yyyy-MM-dd" format) when habit was completed
-    private Set<String> completedDates;
+    // One bit per epoch day the habit was completed, stored as a BLOB
+    // The habit_completions rows are the record; this is a compact copy derived from them
+    private CompletionBitmap completionBitmap;
+
+    // Bumped by a trigger on every insert or delete in habit_completions for this habit
+    @ColumnInfo(defaultValue = "0")
+    private int completionVersion;
+
+    // completionVersion the stored bitmap was built at; the bitmap is stale when they differ
+    @ColumnInfo(defaultValue = "0")
+    private int bitmapVersion;
+
+    // Runs of consecutive due days, built from the bitmap on first use and updated with it
+    @Ignore
+    private StreakIndex streakIndex;
+
+    // Parsed from frequency and selectedDays on first use
+    @Ignore
+    private WeekdaySchedule schedule;
+
+    // Prefix sums for window counts, built on first use and updated with the bitmap
+    @Ignore
+    private CompletionIndex completionIndex;
 
     // Track when the habit was last checked (for midnight reset logic)
     private Date lastCheckedDate;
@@ -62,7 +92,7 @@ public class HabitEntity {
         this.reminderMinute = 0;
         this.currentStreak = 0;
         this.longestStreak = 0;
-        this.completedDates = new HashSet<>();
+        this.completionBitmap = new CompletionBitmap();
         this.lastCheckedDate = new Date();
         this.isCheckedToday = false;
     }
@@ -89,11 +119,38 @@ public class HabitEntity {
     public Date getCreatedDate() { return createdDate; }
     public void setCreatedDate(Date createdDate) { this.createdDate = createdDate; }
 
+    @Override
+    public int getCreatedDay() {
+        return createdDate != null ? DateKeys.toEpochDay(createdDate) : DateKeys.INVALID;
+    }
+
     public String getFrequency() { return frequency; }
-    public void setFrequency(String frequency) { this.frequency = frequency; }
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+        invalidateSchedule();
+    }
 
     public String getSelectedDays() { return selectedDays; }
-    public void setSelectedDays(String selectedDays) { this.selectedDays = selectedDays; }
+    public void setSelectedDays(String selectedDays) {
+        this.selectedDays = selectedDays;
+        invalidateSchedule();
+    }
+
+    /**
+     * Get the days of the week this habit is due
+     */
+    public WeekdaySchedule getSchedule() {
+        if (schedule == null) {
+            schedule = WeekdaySchedule.of(frequency, selectedDays);
+        }
+        return schedule;
+    }
+
+    private void invalidateSchedule() {
+        schedule = null;
+        streakIndex = null;
+        completionIndex = null;
+    }
 
     public boolean isReminderEnabled() { return reminderEnabled; }
     public void setReminderEnabled(boolean reminderEnabled) { this.reminderEnabled = reminderEnabled; }
@@ -110,50 +167,104 @@ public class HabitEntity {
     public int getLongestStreak() { return longestStreak; }
     public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
 
-    public Set<String> getCompletedDates() { return completedDates; }
-    public void setCompletedDates(Set<String> completedDates) { this.completedDates = completedDates; }
-
     public Date getLastCheckedDate() { return lastCheckedDate; }
     public void setLastCheckedDate(Date lastCheckedDate) { this.lastCheckedDate = lastCheckedDate; }
 
     public boolean isCheckedToday() { return isCheckedToday; }
     public void setCheckedToday(boolean checkedToday) { isCheckedToday = checkedToday; }
 
+    public CompletionBitmap getCompletionBitmap() { return completionBitmap; }
+    public void setCompletionBitmap(CompletionBitmap completionBitmap) {
+        this.completionBitmap = completionBitmap != null ? completionBitmap : new CompletionBitmap();
+        this.streakIndex = null;
+        this.completionIndex = null;
+    }
+
+    public int getCompletionVersion() { return completionVersion; }
+    public void setCompletionVersion(int completionVersion) { this.completionVersion = completionVersion; }
+
+    public int getBitmapVersion() { return bitmapVersion; }
+    public void setBitmapVersion(int bitmapVersion) { this.bitmapVersion = bitmapVersion; }
+
     /**
-     * Check if habit was completed on a specific date
-     * @param dateStr Date in "yyyy-MM-dd" format
-     * @return true if completed on that date
+     * Get the streak index of the completion history, over the days the habit is due
      */
-    public boolean isCompletedOnDate(String dateStr) {
-        return completedDates != null && completedDates.contains(dateStr);
+    public StreakIndex getStreakIndex() {
+        if (streakIndex == null) {
+            streakIndex = StreakIndex.of(completionBitmap, getSchedule());
+        }
+        return streakIndex;
     }
 
     /**
-     * Mark habit as completed on a specific date
-     * @param dateStr Date in "yyyy-MM-dd" format
+     * Get the prefix-sum index of the completion history
      */
-    public void markCompletedOnDate(String dateStr) {
-        if (completedDates == null) {
-            completedDates = new HashSet<>();
+    public CompletionIndex getCompletionIndex() {
+        if (completionIndex == null || !completionIndex.isCurrent()) {
+            completionIndex = CompletionIndex.of(completionBitmap, getSchedule());
         }
-        completedDates.add(dateStr);
+        return completionIndex;
+    }
+
+    /**
+     * Check if habit was completed on a specific day
+     * @param epochDay Day number since 1970-01-01 (see DateUtils.toEpochDay)
+     * @return true if completed on that day
+     */
+    public boolean isCompletedOnDay(int epochDay) {
+        return completionBitmap.contains(epochDay);
+    }
+
+    /**
+     * Get the number of days the habit was completed
+     */
+    public int getCompletionCount() {
+        return completionBitmap.cardinality();
+    }
+
+    /**
+     * Get the number of completed days within a range (inclusive)
+     */
+    public int getCompletionCountBetween(int startDay, int endDay) {
+        return getCompletionIndex().countBetween(startDay, endDay);
     }
 
     /**
-     * Unmark habit completion on a specific date
+     * Get a copy of the completed days, sorted ascending
+     */
+    public int[] getCompletedDays() {
+        return completionBitmap.toArray();
+    }
+
+    /**
+     * Replace the completion history
+     * @param days Epoch days in any order; duplicates are dropped
+     */
+    public void setCompletedDays(int[] days) {
+        completionBitmap = days != null ? CompletionBitmap.of(days) : new CompletionBitmap();
+        streakIndex = null;
+        completionIndex = null;
+    }
+
+    /**
+     * Check if habit was completed on a specific date
      * @param dateStr Date in "yyyy-MM-dd" format
+     * @return true if completed on that date
      */
-    public void unmarkCompletedOnDate(String dateStr) {
-        if (completedDates != null) {
-            completedDates.remove(dateStr);
-        }
+    public boolean isCompletedOnDate(String dateStr) {
+        return isCompletedOnDay(DateConverter.keyToEpochDay(dateStr));
     }
 
     /**
      * Get completion dates as a List
-     * @return List of completion date strings
+     * @return List of completion date strings in "yyyy-MM-dd" format, oldest first
      */
-    public java.util.List<String> getCompletionDatesList() {
-        return completedDates != null ? new java.util.ArrayList<>(completedDates) : new java.util.ArrayList<>();
+    public List<String> getCompletionDatesList() {
+        int[] days = completionBitmap.toArray();
+        List<String> dates = new ArrayList<>(days.length);
+        for (int day : days) {
+            dates.add(DateConverter.epochDayToKey(day));
+        }
+        return dates;
     }
 }
@@ -0,0 +1,92 @@
+package com.sajoldev.habittracker.data;
+
+import androidx.room.Ignore;
+
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+import java.util.Date;
+
+/**
+ * HabitSummary - Lightweight query result for list screens
+ * Carries only what a habit row shows, plus whether the habit was completed on the queried day;
+ * the completion history itself stays in the database
+ */
+public class HabitSummary {
+
+    private int id;
+    private String name;
+    private String goal;
+    private int color;
+    private int iconResourceId;
+    private String category;
+    private Date createdDate;
+    private String frequency;
+    private String selectedDays;
+    private int currentStreak;
+    private int longestStreak;
+
+    // Number of days the habit was completed, over its whole history
+    private int completionCount;
+
+    // Whether the habit was completed on the day the summary was queried for
+    private boolean completed;
+
+    // Parsed from frequency and selectedDays on first use
+    @Ignore
+    private WeekdaySchedule schedule;
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public String getGoal() { return goal; }
+    public void setGoal(String goal) { this.goal = goal; }
+
+    public int getColor() { return color; }
+    public void setColor(int color) { this.color = color; }
+
+    public int getIconResourceId() { return iconResourceId; }
+    public void setIconResourceId(int iconResourceId) { this.iconResourceId = iconResourceId; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public Date getCreatedDate() { return createdDate; }
+    public void setCreatedDate(Date createdDate) { this.createdDate = createdDate; }
+
+    public String getFrequency() { return frequency; }
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+        schedule = null;
+    }
+
+    public String getSelectedDays() { return selectedDays; }
+    public void setSelectedDays(String selectedDays) {
+        this.selectedDays = selectedDays;
+        schedule = null;
+    }
+
+    /**
+     * Get the days of the week this habit is due
+     */
+    public WeekdaySchedule getSchedule() {
+        if (schedule == null) {
+            schedule = WeekdaySchedule.of(frequency, selectedDays);
+        }
+        return schedule;
+    }
+
+    public int getCurrentStreak() { return currentStreak; }
+    public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
+
+    public int getLongestStreak() { return longestStreak; }
+    public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+
+    public int getCompletionCount() { return completionCount; }
+    public void setCompletionCount(int completionCount) { this.completionCount = completionCount; }
+
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+}
@@ -0,0 +1,32 @@
+package com.sajoldev.habittracker.data;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * MonthlyStat - Room Database Entity
+ * Completions per calendar month, kept up to date by SQLite triggers on
+ * habit_completions (see HabitDatabase.createRollupTriggers)
+ * Multi-year charts read one row per month instead of one per day
+ */
+@Entity(tableName = "monthly_stats")
+public class MonthlyStat {
+
+    // Epoch day of the first day of the month
+    @PrimaryKey
+    private int monthStartDay;
+
+    // Completions recorded during the month across all habits
+    private int completedCount;
+
+    public MonthlyStat(int monthStartDay, int completedCount) {
+        this.monthStartDay = monthStartDay;
+        this.completedCount = completedCount;
+    }
+
+    public int getMonthStartDay() { return monthStartDay; }
+    public void setMonthStartDay(int monthStartDay) { this.monthStartDay = monthStartDay; }
+
+    public int getCompletedCount() { return completedCount; }
+    public void setCompletedCount(int completedCount) { this.completedCount = completedCount; }
+}
@@ -0,0 +1,38 @@
+package com.sajoldev.habittracker.data;
+
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+/**
+ * StreakState - The columns a single check-in needs besides the completion rows
+ * The completion bitmap is left out, so a toggle never loads or decodes it
+ */
+public class StreakState {
+
+    private int id;
+    private int currentStreak;
+    private int longestStreak;
+    private String frequency;
+    private String selectedDays;
+
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+
+    public int getCurrentStreak() { return currentStreak; }
+    public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
+
+    public int getLongestStreak() { return longestStreak; }
+    public void setLongestStreak(int longestStreak) { this.longestStreak = longestStreak; }
+
+    public String getFrequency() { return frequency; }
+    public void setFrequency(String frequency) { this.frequency = frequency; }
+
+    public String getSelectedDays() { return selectedDays; }
+    public void setSelectedDays(String selectedDays) { this.selectedDays = selectedDays; }
+
+    /**
+     * Get the days of the week this habit is due
+     */
+    public WeekdaySchedule getSchedule() {
+        return WeekdaySchedule.of(frequency, selectedDays);
+    }
+}
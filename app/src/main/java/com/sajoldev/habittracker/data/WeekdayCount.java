@@ -0,0 +1,20 @@
+package com.sajoldev.habittracker.data;
+
+/**
+ * WeekdayCount - Query result: completions recorded on one day of the week
+ * Weekdays are numbered as in WeekdaySchedule.weekday, 0 = Monday ... 6 = Sunday
+ */
+public class WeekdayCount {
+
+    private final int weekday;
+    private final int count;
+
+    public WeekdayCount(int weekday, int count) {
+        this.weekday = weekday;
+        this.count = count;
+    }
+
+    public int getWeekday() { return weekday; }
+
+    public int getCount() { return count; }
+}
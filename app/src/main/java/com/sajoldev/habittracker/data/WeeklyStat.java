@@ -0,0 +1,32 @@
+package com.sajoldev.habittracker.data;
+
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * WeeklyStat - Room Database Entity
+ * Completions per Monday-to-Sunday week, kept up to date by SQLite triggers on
+ * habit_completions (see HabitDatabase.createRollupTriggers)
+ * Long-range charts read one row per week instead of seven daily rows
+ */
+@Entity(tableName = "weekly_stats")
+public class WeeklyStat {
+
+    // Epoch day of the week's Monday
+    @PrimaryKey
+    private int weekStartDay;
+
+    // Completions recorded during the week across all habits
+    private int completedCount;
+
+    public WeeklyStat(int weekStartDay, int completedCount) {
+        this.weekStartDay = weekStartDay;
+        this.completedCount = completedCount;
+    }
+
+    public int getWeekStartDay() { return weekStartDay; }
+    public void setWeekStartDay(int weekStartDay) { this.weekStartDay = weekStartDay; }
+
+    public int getCompletedCount() { return completedCount; }
+    public void setCompletedCount(int completedCount) { this.completedCount = completedCount; }
+}
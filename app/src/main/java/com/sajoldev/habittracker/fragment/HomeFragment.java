@@ -1,6 +1,7 @@
 package com.sajoldev.habittracker.fragment;
 
 import android.app.Dialog;
+import android.content.Context;
 import android.content.Intent;
 import android.graphics.Color;
 import android.graphics.drawable.ColorDrawable;
@@ -27,6 +28,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.LiveData;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -36,20 +38,26 @@ import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.sajoldev.habittracker.R;
 import com.sajoldev.habittracker.adapter.DatePickerAdapter;
 import com.sajoldev.habittracker.adapter.HabitAdapter;
+import com.sajoldev.habittracker.data.DailyStat;
 import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.data.HabitSummary;
 import com.sajoldev.habittracker.notification.ReminderReceiver;
-import com.sajoldev.habittracker.utils.AchievementManager;
 import com.sajoldev.habittracker.utils.DateUtils;
 import com.sajoldev.habittracker.viewmodel.HabitViewModel;
-import com.sajoldev.habittracker.widget.HabitWidgetProvider;
 
 import java.util.Date;
+import java.util.List;
 
 public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickListener, DatePickerAdapter.OnDateSelectedListener {
 
+    // Days the date strip always covers before and after today
+    private static final int DATE_STRIP_DAYS_BACK = 30;
+    private static final int DATE_STRIP_DAYS_AHEAD = 7;
+
     private HabitViewModel habitViewModel;
     private HabitAdapter habitAdapter;
     private DatePickerAdapter datePickerAdapter;
+    private LiveData<List<DailyStat>> dateStripStats;
 
     private RecyclerView habitRecyclerView;
     private RecyclerView dateRecyclerView;
@@ -122,19 +130,46 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
     }
 
     private void setupDatePicker() {
-        Date[] dates = DateUtils.getDateRange(30, 7);
-        datePickerAdapter = new DatePickerAdapter(dates, this);
+        // At least a month back; extended to the oldest habit once habits are loaded
+        int today = DateUtils.todayEpochDay();
+        datePickerAdapter = new DatePickerAdapter(today - DATE_STRIP_DAYS_BACK, today + DATE_STRIP_DAYS_AHEAD, this);
 
         LinearLayoutManager layoutManager = new LinearLayoutManager(getContext(), LinearLayoutManager.HORIZONTAL, false);
         dateRecyclerView.setLayoutManager(layoutManager);
         dateRecyclerView.setAdapter(datePickerAdapter);
 
-        // Scroll to today's position (30 days before + today = index 30)
-        int todayPosition = 30; // Since we have 30 days before today
-        dateRecyclerView.scrollToPosition(todayPosition);
-        
-        // Notify the adapter that today is selected
-        datePickerAdapter.setSelectedPosition(todayPosition);
+        // Scroll to today's position; the adapter selects today by default
+        dateRecyclerView.scrollToPosition(datePickerAdapter.getPositionForDay(today));
+        habitViewModel.setSelectedDate(new Date());
+        observeDateStripStats();
+    }
+
+    /**
+     * Extend the date strip back to the day the oldest habit was created
+     */
+    private void extendDateStrip(List<HabitSummary> habits) {
+        int oldest = datePickerAdapter.getFirstDay();
+        for (HabitSummary habit : habits) {
+            if (habit.getCreatedDate() != null) {
+                oldest = Math.min(oldest, DateUtils.toEpochDay(habit.getCreatedDate()));
+            }
+        }
+        if (oldest < datePickerAdapter.getFirstDay()) {
+            datePickerAdapter.extendBackTo(oldest);
+            observeDateStripStats();
+        }
+    }
+
+    /**
+     * Show completion counts on the date strip, from the precomputed daily stats of its whole range
+     */
+    private void observeDateStripStats() {
+        if (dateStripStats != null) {
+            dateStripStats.removeObservers(getViewLifecycleOwner());
+        }
+        int firstDay = datePickerAdapter.getFirstDay();
+        dateStripStats = habitViewModel.getDailyStats(firstDay, firstDay + datePickerAdapter.getItemCount() - 1);
+        dateStripStats.observe(getViewLifecycleOwner(), datePickerAdapter::setDailyStats);
     }
 
     private void setupFab() {
@@ -142,10 +177,11 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
     }
 
     private void observeHabits() {
-        habitViewModel.getAllHabits().observe(getViewLifecycleOwner(), habits -> {
-            habitAdapter.setHabits(habits);
+        // Rows are built in the background, ready to bind
+        habitViewModel.getHabitRows().observe(getViewLifecycleOwner(), rows -> {
+            habitAdapter.setRows(rows);
 
-            if (habits == null || habits.isEmpty()) {
+            if (rows.isEmpty()) {
                 tvEmptyState.setVisibility(View.VISIBLE);
                 habitRecyclerView.setVisibility(View.GONE);
             } else {
@@ -153,12 +189,14 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
                 habitRecyclerView.setVisibility(View.VISIBLE);
             }
 
-            tvHeaderTitle.setText("My Habits (" + habits.size() + ")");
-
-            AchievementManager achievementManager = new AchievementManager(requireContext());
-            achievementManager.checkAchievements(requireContext(), habits);
+            tvHeaderTitle.setText("My Habits (" + rows.size() + ")");
+        });
 
-            HabitWidgetProvider.updateAllWidgets(requireContext());
+        // Achievements and widgets are updated by HabitSideEffects, fed from the view model
+        habitViewModel.getHabitSummaries().observe(getViewLifecycleOwner(), habits -> {
+            if (habits != null) {
+                extendDateStrip(habits);
+            }
         });
     }
 
@@ -267,11 +305,16 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
             habit.setReminderHour(reminderHour[0]);
             habit.setReminderMinute(reminderMinute[0]);
 
-            habitViewModel.insert(habit);
+            String habitGoal = goal;
+            boolean reminderOn = switchReminder.isChecked();
+            Context appContext = requireContext().getApplicationContext();
 
-            if (switchReminder.isChecked()) {
-                ReminderReceiver.scheduleReminder(requireContext(), habit.getId(), name, goal, reminderHour[0], reminderMinute[0]);
-            }
+            // The reminder is keyed by habit ID, which only exists once the insert has run
+            habitViewModel.insert(habit, habitId -> {
+                if (reminderOn) {
+                    ReminderReceiver.scheduleReminder(appContext, habitId, name, habitGoal, reminderHour[0], reminderMinute[0]);
+                }
+            });
 
             Toast.makeText(getContext(), "Habit added!", Toast.LENGTH_SHORT).show();
             dialog.dismiss();
@@ -360,12 +403,12 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
     }
 
     @Override
-    public void onHabitClick(HabitEntity habit, int position) {
+    public void onHabitClick(HabitSummary habit, int position) {
         // Optional: Show habit details
     }
 
     @Override
-    public void onHabitLongClick(HabitEntity habit, int position) {
+    public void onHabitLongClick(HabitSummary habit, int position) {
         // Show options dialog
         String[] options = {"Edit", "Delete"};
         new android.app.AlertDialog.Builder(getContext())
@@ -381,9 +424,8 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
     }
 
     @Override
-    public void onCheckClick(HabitEntity habit, int position, boolean isChecked) {
-        String todayStr = DateUtils.getTodayString();
-        habitViewModel.toggleHabitCompletion(habit, todayStr, isChecked);
+    public void onCheckClick(HabitSummary habit, int position, boolean isChecked) {
+        habitViewModel.toggleHabitCompletion(habit.getId(), DateUtils.todayEpochDay(), isChecked);
 
         if (isChecked) {
             Toast.makeText(getContext(), "Great job! Keep it up! 🔥", Toast.LENGTH_SHORT).show();
@@ -392,7 +434,7 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
 
     @Override
     public void onDateSelected(Date date, int position) {
-        habitAdapter.setSelectedDate(date);
+        habitViewModel.setSelectedDate(date);
 
         if (DateUtils.isToday(date)) {
             tvHeaderTitle.setText("Today's Habits");
@@ -401,17 +443,17 @@ public class HomeFragment extends Fragment implements HabitAdapter.OnHabitClickL
         }
     }
 
-    private void showEditHabitDialog(HabitEntity habit) {
+    private void showEditHabitDialog(HabitSummary habit) {
         // Similar to showAddHabitDialog but with pre-filled values
         Toast.makeText(getContext(), "Edit feature - to be implemented", Toast.LENGTH_SHORT).show();
     }
 
-    private void showDeleteDialog(HabitEntity habit) {
+    private void showDeleteDialog(HabitSummary habit) {
         new android.app.AlertDialog.Builder(getContext())
                 .setTitle("Delete Habit")
                 .setMessage("Are you sure you want to delete \"" + habit.getName() + "\"?")
                 .setPositiveButton("Delete", (dialog, which) -> {
-                    habitViewModel.delete(habit);
+                    habitViewModel.deleteById(habit.getId());
                     Toast.makeText(getContext(), "Habit deleted", Toast.LENGTH_SHORT).show();
                 })
                 .setNegativeButton("Cancel", null)
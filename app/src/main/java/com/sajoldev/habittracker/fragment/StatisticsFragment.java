@@ -31,28 +31,51 @@ import com.github.mikephil.charting.data.PieEntry;
 import com.github.mikephil.charting.formatter.IndexAxisValueFormatter;
 import com.github.mikephil.charting.utils.ColorTemplate;
 import com.sajoldev.habittracker.R;
-import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.core.analytics.StatisticsSnapshot;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+import com.sajoldev.habittracker.data.CategoryCount;
+import com.sajoldev.habittracker.data.DailyStat;
+import com.sajoldev.habittracker.data.HabitSummary;
+import com.sajoldev.habittracker.data.WeekdayCount;
+import com.sajoldev.habittracker.utils.ChartResolution;
+import com.sajoldev.habittracker.utils.CompletionSeries;
 import com.sajoldev.habittracker.utils.CountAnimation;
 import com.sajoldev.habittracker.utils.DateUtils;
+import com.sajoldev.habittracker.utils.StatsRange;
+import com.sajoldev.habittracker.view.HeatmapView;
 import com.sajoldev.habittracker.viewmodel.HabitViewModel;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class StatisticsFragment extends Fragment {
 
     private HabitViewModel viewModel;
-    private List<HabitEntity> habits = new ArrayList<>();
-    private HabitEntity selectedHabit;
+    private List<HabitSummary> habits = new ArrayList<>();
+    private HabitSummary selectedHabit;
+    // Completed days of the selected habit, loaded in the background; null while loading
+    private CompletionBitmap selectedBitmap;
+    // Spinner entries currently shown, so an unchanged list does not reset the selection
+    private List<String> spinnerNames;
+    private StatisticsSnapshot statistics;
+    private List<CategoryCount> categoryCounts = new ArrayList<>();
+
+    // Closest points may be drawn on the line chart; finer data is rolled up into weeks or months
+    private static final float MIN_POINT_SPACING_DP = 1.5f;
+
+    private StatsRange selectedRange = StatsRange.DAYS_30;
+    // Completions across all habits for the selected range, from the matching stats table
+    private CompletionSeries allHabitsSeries;
+    private int[] weekdayTotals = new int[7];
+    private List<DailyStat> heatmapStats;
 
     private LineChart lineChart;
     private BarChart barChart;
     private PieChart pieChart;
+    private HeatmapView heatmapView;
 
     private TextView tvTotalHabits;
     private TextView tvCompletedToday;
@@ -61,6 +84,7 @@ public class StatisticsFragment extends Fragment {
     private TextView tvWeeklyAverage;
 
     private Spinner habitSpinner;
+    private Spinner rangeSpinner;
 
     @Nullable
     @Override
@@ -72,13 +96,68 @@ public class StatisticsFragment extends Fragment {
         initViews(view);
         initCharts();
 
-        viewModel.getAllHabits().observe(getViewLifecycleOwner(), habitList -> {
-            this.habits = habitList;
+        setupRangeSpinner();
+        habitSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                HabitSummary habit = position == 0 ? null : habits.get(position - 1);
+                if (idOf(habit) == idOf(selectedHabit)) return;
+                selectedHabit = habit;
+                selectedBitmap = null;
+                loadSelectedBitmap();
+                updateCharts();
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {}
+        });
+
+        // Summaries carry names and streaks only; no completion history is loaded
+        viewModel.getHabitSummaries().observe(getViewLifecycleOwner(), summaries -> {
+            this.habits = summaries != null ? summaries : new ArrayList<>();
             setupHabitSpinner();
+            // The selected habit's completions may have changed
+            loadSelectedBitmap();
+            updateCharts();
+        });
+
+        // Cached by the ViewModel, so returning to this tab shows it without recomputing
+        viewModel.getStatistics().observe(getViewLifecycleOwner(), snapshot -> {
+            this.statistics = snapshot;
             updateOverallStats();
+            // All time starts at the oldest history, which may have changed
+            requestChartRange();
+        });
+
+        viewModel.getCompletionSeries().observe(getViewLifecycleOwner(), series -> {
+            this.allHabitsSeries = series;
+            updateCharts();
+        });
+
+        viewModel.getWeekdayTotals().observe(getViewLifecycleOwner(), counts -> {
+            int[] byWeekday = new int[7];
+            if (counts != null) {
+                for (WeekdayCount count : counts) {
+                    byWeekday[count.getWeekday()] = count.getCount();
+                }
+            }
+            weekdayTotals = byWeekday;
             updateCharts();
         });
 
+        // A year of per-day totals for the heatmap
+        int today = DateUtils.todayEpochDay();
+        viewModel.getDailyStats(HeatmapView.firstDay(today), today).observe(getViewLifecycleOwner(), stats -> {
+            this.heatmapStats = stats;
+            updateHeatmap();
+        });
+
+        // Habits per category, grouped in SQL
+        viewModel.getCategoryCounts(today - 29, today).observe(getViewLifecycleOwner(), counts -> {
+            this.categoryCounts = counts != null ? counts : new ArrayList<>();
+            updatePieChart();
+        });
+
         return view;
     }
 
@@ -86,6 +165,7 @@ public class StatisticsFragment extends Fragment {
         lineChart = view.findViewById(R.id.lineChart);
         barChart = view.findViewById(R.id.barChart);
         pieChart = view.findViewById(R.id.pieChart);
+        heatmapView = view.findViewById(R.id.heatmapView);
 
         tvTotalHabits = view.findViewById(R.id.tvTotalHabits);
         tvCompletedToday = view.findViewById(R.id.tvCompletedToday);
@@ -94,6 +174,7 @@ public class StatisticsFragment extends Fragment {
         tvWeeklyAverage = view.findViewById(R.id.tvWeeklyAverage);
 
         habitSpinner = view.findViewById(R.id.habitSpinner);
+        rangeSpinner = view.findViewById(R.id.rangeSpinner);
     }
 
     private void initCharts() {
@@ -117,27 +198,72 @@ public class StatisticsFragment extends Fragment {
         pieChart.animateY(2000);
     }
 
+    /**
+     * Show the current habits in the spinner, keeping the selected habit selected
+     */
     private void setupHabitSpinner() {
+        int selectedId = idOf(selectedHabit);
+        selectedHabit = null;
+        int selection = 0;
         List<String> habitNames = new ArrayList<>();
         habitNames.add("All Habits");
-        for (HabitEntity habit : habits) {
+        for (int i = 0; i < habits.size(); i++) {
+            HabitSummary habit = habits.get(i);
             habitNames.add(habit.getName());
+            if (habit.getId() == selectedId) {
+                selectedHabit = habit;
+                selection = i + 1;
+            }
+        }
+        if (selectedHabit == null) {
+            selectedBitmap = null;
+        }
+
+        if (!habitNames.equals(spinnerNames)) {
+            spinnerNames = habitNames;
+            ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(),
+                    android.R.layout.simple_spinner_item, habitNames);
+            adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+            habitSpinner.setAdapter(adapter);
+        }
+        habitSpinner.setSelection(selection);
+    }
+
+    /**
+     * Load the selected habit's completed days; charts update when they arrive
+     */
+    private void loadSelectedBitmap() {
+        HabitSummary habit = selectedHabit;
+        if (habit == null) return;
+        viewModel.getCompletionBitmap(habit.getId(), bitmap -> {
+            // The selection or the view may be gone by now
+            if (habit != selectedHabit || getView() == null) return;
+            selectedBitmap = bitmap;
+            updateCharts();
+        });
+    }
+
+    private static int idOf(@Nullable HabitSummary habit) {
+        return habit != null ? habit.getId() : 0;
+    }
+
+    private void setupRangeSpinner() {
+        List<String> labels = new ArrayList<>();
+        for (StatsRange range : StatsRange.values()) {
+            labels.add(range.getLabel());
         }
 
         ArrayAdapter<String> adapter = new ArrayAdapter<>(requireContext(),
-                android.R.layout.simple_spinner_item, habitNames);
+                android.R.layout.simple_spinner_item, labels);
         adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        habitSpinner.setAdapter(adapter);
+        rangeSpinner.setAdapter(adapter);
+        rangeSpinner.setSelection(selectedRange.ordinal());
 
-        habitSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
+        rangeSpinner.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-                if (position == 0) {
-                    selectedHabit = null;
-                } else {
-                    selectedHabit = habits.get(position - 1);
-                }
-                updateCharts();
+                selectedRange = StatsRange.values()[position];
+                requestChartRange();
             }
 
             @Override
@@ -145,103 +271,66 @@ public class StatisticsFragment extends Fragment {
         });
     }
 
-    private void updateOverallStats() {
-        CountAnimation.animateCount(tvTotalHabits, 0, habits.size(), 1500);
-
-        int completedToday = 0;
-        String today = DateUtils.getTodayString();
-        for (HabitEntity habit : habits) {
-            if (habit.isCompletedOnDate(today)) {
-                completedToday++;
-            }
-        }
-        CountAnimation.animateCountFraction(tvCompletedToday, 0, completedToday, habits.size(), 1500);
+    /**
+     * Ask for the selected range at the finest resolution the line chart's width can show
+     */
+    private void requestChartRange() {
+        int today = DateUtils.todayEpochDay();
+        int firstDay = statistics != null ? Math.min(today, statistics.getFirstHistoryDay()) : today;
+        int startDay = selectedRange.startDay(today, firstDay);
 
-        int bestStreak = 0;
-        for (HabitEntity habit : habits) {
-            if (habit.getCurrentStreak() > bestStreak) {
-                bestStreak = habit.getCurrentStreak();
-            }
-        }
-        CountAnimation.animateCountWithSuffix(tvBestStreak, 0, bestStreak, " days", 1500);
-
-        int totalCompletions = 0;
-        int totalPossible = 0;
-        for (HabitEntity habit : habits) {
-            List<String> completionDates = habit.getCompletionDatesList();
-            totalCompletions += completionDates.size();
-            long daysSinceCreated = DateUtils.getDaysBetween(habit.getCreatedDate(), new Date());
-            totalPossible += Math.max(1, daysSinceCreated);
-        }
-        int successRate = totalPossible > 0 ? (totalCompletions * 100 / totalPossible) : 0;
-        CountAnimation.animateCountWithSuffix(tvSuccessRate, 0, successRate, "%", 1500);
+        float density = getResources().getDisplayMetrics().density;
+        int width = lineChart.getWidth() > 0 ? lineChart.getWidth() : getResources().getDisplayMetrics().widthPixels;
+        int maxPoints = Math.max(1, (int) (width / (MIN_POINT_SPACING_DP * density)));
 
-        int weeklyTotal = 0;
-        for (HabitEntity habit : habits) {
-            weeklyTotal += getWeeklyCompletions(habit);
-        }
-        int weeklyAverage = habits.size() > 0 ? weeklyTotal / habits.size() : 0;
-        CountAnimation.animateCountFraction(tvWeeklyAverage, 0, weeklyAverage, 7, 1500);
+        viewModel.setChartRange(ChartResolution.forSpan(today - startDay + 1, maxPoints), startDay, today);
     }
 
-    private int getWeeklyCompletions(HabitEntity habit) {
-        int count = 0;
-        Calendar cal = Calendar.getInstance();
-        List<String> completionDates = habit.getCompletionDatesList();
-
-        for (int i = 0; i < 7; i++) {
-            String dateStr = DateUtils.dateToString(cal.getTime());
-            if (completionDates.contains(dateStr)) {
-                count++;
-            }
-            cal.add(Calendar.DAY_OF_YEAR, -1);
-        }
-        return count;
+    private void updateOverallStats() {
+        int total = statistics.getTotalHabits();
+        CountAnimation.animateCount(tvTotalHabits, 0, total, 1500);
+        CountAnimation.animateCountFraction(tvCompletedToday, 0, statistics.getCompletedToday(), total, 1500);
+        CountAnimation.animateCountWithSuffix(tvBestStreak, 0, statistics.getBestStreak(), " days", 1500);
+        CountAnimation.animateCountWithSuffix(tvSuccessRate, 0, statistics.getSuccessRate(), "%", 1500);
+        CountAnimation.animateCountFraction(tvWeeklyAverage, 0, statistics.getWeeklyAverage(), 7, 1500);
     }
 
     private void updateCharts() {
         if (habits.isEmpty()) return;
+        // Wait for the selected habit's completions
+        if (selectedHabit != null && selectedBitmap == null) return;
 
         updateLineChart();
         updateBarChart();
         updatePieChart();
+        updateHeatmap();
     }
 
     private void updateLineChart() {
-        List<Entry> entries = new ArrayList<>();
-        List<String> labels = new ArrayList<>();
-
-        Calendar cal = Calendar.getInstance();
-        for (int i = 29; i >= 0; i--) {
-            Calendar tempCal = (Calendar) cal.clone();
-            tempCal.add(Calendar.DAY_OF_YEAR, -i);
-            String dateStr = DateUtils.dateToString(tempCal.getTime());
-
-            int completions = 0;
-            if (selectedHabit != null) {
-                if (selectedHabit.isCompletedOnDate(dateStr)) {
-                    completions = 1;
-                }
-            } else {
-                for (HabitEntity habit : habits) {
-                    if (habit.isCompletedOnDate(dateStr)) {
-                        completions++;
-                    }
-                }
-            }
-
-            entries.add(new Entry(29 - i, completions));
-            if (i % 5 == 0) {
-                labels.add(DateUtils.getDayMonthShort(tempCal.getTime()));
-            } else {
-                labels.add("");
-            }
+        if (allHabitsSeries == null) return;
+
+        // One habit's series comes straight from its bitmap, at the same points as the total
+        CompletionSeries series = selectedHabit == null ? allHabitsSeries
+                : CompletionSeries.of(selectedBitmap, allHabitsSeries.getResolution(),
+                        allHabitsSeries.getStartDay(), allHabitsSeries.getEndDay());
+
+        List<Entry> entries = new ArrayList<>(series.size());
+        List<String> labels = new ArrayList<>(series.size());
+        int labelStep = Math.max(1, series.size() / 6);
+        for (int i = 0; i < series.size(); i++) {
+            entries.add(new Entry(i, series.getCount(i)));
+            int last = series.size() - 1 - i;
+            labels.add(last % labelStep == 0 ? getPointLabel(series, i) : "");
         }
 
+        // Dots and values only while points are far enough apart to read
+        boolean sparse = series.size() <= 31;
         LineDataSet dataSet = new LineDataSet(entries, "Completions");
         dataSet.setColor(Color.parseColor("#4CAF50"));
         dataSet.setValueTextSize(10f);
+        dataSet.setDrawValues(sparse);
         dataSet.setLineWidth(2f);
+        dataSet.setDrawCircles(sparse);
         dataSet.setCircleColor(Color.parseColor("#4CAF50"));
         dataSet.setCircleRadius(4f);
 
@@ -252,37 +341,31 @@ public class StatisticsFragment extends Fragment {
         lineChart.invalidate();
     }
 
+    private String getPointLabel(CompletionSeries series, int i) {
+        Date start = DateUtils.epochDayToDate(series.getBucketStart(i));
+        if (series.getResolution() == ChartResolution.MONTH) {
+            return android.text.format.DateFormat.format("MMM yy", start).toString();
+        }
+        return DateUtils.getDayMonthShort(start);
+    }
+
     private void updateBarChart() {
         List<BarEntry> entries = new ArrayList<>();
         List<String> labels = Arrays.asList("Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun");
 
-        Calendar cal = Calendar.getInstance();
-        int currentDayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
-        int daysToSubtract = currentDayOfWeek - Calendar.MONDAY;
-        if (daysToSubtract < 0) daysToSubtract += 7;
-        cal.add(Calendar.DAY_OF_YEAR, -daysToSubtract);
-
-        for (int i = 0; i < 7; i++) {
-            String dateStr = DateUtils.dateToString(cal.getTime());
-            int completions = 0;
-
-            if (selectedHabit != null) {
-                if (selectedHabit.isCompletedOnDate(dateStr)) {
-                    completions = 1;
-                }
+        for (int weekday = 0; weekday < 7; weekday++) {
+            int completions;
+            if (selectedHabit != null && allHabitsSeries != null) {
+                // Popcount over just this weekday's bits
+                completions = selectedBitmap.countRange(allHabitsSeries.getStartDay(),
+                        allHabitsSeries.getEndDay(), WeekdaySchedule.forMask(1 << weekday));
             } else {
-                for (HabitEntity habit : habits) {
-                    if (habit.isCompletedOnDate(dateStr)) {
-                        completions++;
-                    }
-                }
+                completions = weekdayTotals[weekday];
             }
-
-            entries.add(new BarEntry(i, completions));
-            cal.add(Calendar.DAY_OF_YEAR, 1);
+            entries.add(new BarEntry(weekday, completions));
         }
 
-        BarDataSet dataSet = new BarDataSet(entries, "This Week");
+        BarDataSet dataSet = new BarDataSet(entries, selectedRange.getLabel());
         dataSet.setColors(ColorTemplate.MATERIAL_COLORS);
         dataSet.setValueTextSize(12f);
 
@@ -294,14 +377,23 @@ public class StatisticsFragment extends Fragment {
         barChart.invalidate();
     }
 
-    private void updatePieChart() {
-        Map<String, Integer> categoryMap = new HashMap<>();
-
-        String[] categories = {"Health", "Productivity", "Fitness", "Learning", "Other"};
-        for (String cat : categories) {
-            categoryMap.put(cat, 0);
+    /**
+     * Show the selected habit's year, or every habit's; unchanged days are not redrawn
+     */
+    private void updateHeatmap() {
+        int today = DateUtils.todayEpochDay();
+        if (selectedHabit != null) {
+            if (selectedBitmap == null) return;
+            int color = selectedHabit.getColor();
+            heatmapView.setBaseColor(color != 0 ? color : Color.parseColor("#4CAF50"));
+            heatmapView.setCompletions(today, selectedBitmap);
+        } else if (heatmapStats != null) {
+            heatmapView.setBaseColor(Color.parseColor("#4CAF50"));
+            heatmapView.setDailyStats(today, heatmapStats);
         }
+    }
 
+    private void updatePieChart() {
         if (selectedHabit != null) {
             List<PieEntry> entries = new ArrayList<>();
             int completed = selectedHabit.getCurrentStreak();
@@ -316,17 +408,9 @@ public class StatisticsFragment extends Fragment {
             PieData pieData = new PieData(dataSet);
             pieChart.setData(pieData);
         } else {
-            for (HabitEntity habit : habits) {
-                String category = habit.getCategory();
-                if (category == null) category = "Other";
-                categoryMap.put(category, categoryMap.getOrDefault(category, 0) + 1);
-            }
-
             List<PieEntry> entries = new ArrayList<>();
-            for (Map.Entry<String, Integer> entry : categoryMap.entrySet()) {
-                if (entry.getValue() > 0) {
-                    entries.add(new PieEntry(entry.getValue(), entry.getKey()));
-                }
+            for (CategoryCount count : categoryCounts) {
+                entries.add(new PieEntry(count.getHabitCount(), count.getCategory()));
             }
 
             PieDataSet dataSet = new PieDataSet(entries, "Categories");
@@ -0,0 +1,37 @@
+package com.sajoldev.habittracker.notification;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.repository.DailyRollover;
+
+/**
+ * Runs the daily rollover at local midnight and keeps its alarm set
+ * across reboots and clock or time zone changes
+ */
+public class MidnightRolloverReceiver extends BroadcastReceiver {
+
+    public static final String ACTION_ROLLOVER = "com.sajoldev.habittracker.ACTION_ROLLOVER";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+
+        if (ACTION_ROLLOVER.equals(action)) {
+            PendingResult pendingResult = goAsync();
+            DailyRollover.run(context, () -> {
+                DailyRollover.schedule(context);
+                pendingResult.finish();
+            });
+        } else {
+            // Boot, clock change or time zone change: midnight moved, so catch up and re-arm
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+                DateKeys.refreshZone();
+            }
+            DailyRollover.runIfNeeded(context);
+            DailyRollover.schedule(context);
+        }
+    }
+}
@@ -4,9 +4,10 @@ import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 
+import com.sajoldev.habittracker.data.DatabaseExecutors;
 import com.sajoldev.habittracker.data.HabitDao;
 import com.sajoldev.habittracker.data.HabitDatabase;
-import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.repository.MonthSummaryCache;
 import com.sajoldev.habittracker.utils.DateUtils;
 
 public class ReminderActionReceiver extends BroadcastReceiver {
@@ -17,18 +18,19 @@ public class ReminderActionReceiver extends BroadcastReceiver {
             int habitId = intent.getIntExtra("habit_id", -1);
             
             if (habitId != -1) {
-                HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
-                HabitEntity habit = habitDao.getHabitById(habitId);
-                
-                if (habit != null) {
-                    String today = DateUtils.getTodayString();
-                    if (!habit.isCompletedOnDate(today)) {
-                        habit.markCompletedOnDate(today);
-                        habit.setCurrentStreak(habit.getCurrentStreak() + 1);
-                        habit.setCheckedToday(true);
-                        habitDao.updateHabit(habit);
+                // Record the completion on the write lane, in order with in-app check-ins
+                PendingResult pendingResult = goAsync();
+                DatabaseExecutors.getInstance().write().execute(() -> {
+                    try {
+                        HabitDatabase database = HabitDatabase.getInstance(context);
+                        HabitDao habitDao = database.habitDao();
+                        int today = DateUtils.todayEpochDay();
+                        habitDao.setCompletedOnDay(habitId, today, true, today);
+                        MonthSummaryCache.getInstance(database).invalidateDay(today);
+                    } finally {
+                        pendingResult.finish();
                     }
-                }
+                });
                 
                 // Cancel the notification
                 android.app.NotificationManager notificationManager = 
@@ -15,6 +15,7 @@ import androidx.core.app.NotificationCompat;
 
 import com.sajoldev.habittracker.MainActivity;
 import com.sajoldev.habittracker.R;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
 import com.sajoldev.habittracker.data.HabitDao;
 import com.sajoldev.habittracker.data.HabitDatabase;
 import com.sajoldev.habittracker.data.HabitEntity;
@@ -35,13 +36,22 @@ public class ReminderReceiver extends BroadcastReceiver {
         String habitGoal = intent.getStringExtra("habit_goal");
 
         if (habitId != -1 && habitName != null) {
-            // Check if already completed today
-            HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
-            HabitEntity habit = habitDao.getHabitById(habitId);
-            
-            if (habit != null && !habit.isCompletedOnDate(DateUtils.getTodayString())) {
-                showNotification(context, habitId, habitName, habitGoal);
-            }
+            // Check if due and not yet completed today, off the main thread
+            PendingResult pendingResult = goAsync();
+            DatabaseExecutors.getInstance().read().execute(() -> {
+                try {
+                    HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
+                    HabitEntity habit = habitDao.getHabitById(habitId);
+
+                    int today = DateUtils.todayEpochDay();
+                    if (habit != null && habit.getSchedule().isScheduled(today)
+                            && habitDao.getCompletionCountBetween(habitId, today, today) == 0) {
+                        showNotification(context, habitId, habitName, habitGoal);
+                    }
+                } finally {
+                    pendingResult.finish();
+                }
+            });
         }
     }
 
@@ -0,0 +1,130 @@
+package com.sajoldev.habittracker.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.HabitDao;
+import com.sajoldev.habittracker.data.HabitDatabase;
+import com.sajoldev.habittracker.utils.DateUtils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * CompletionWriteBatcher - Coalesces check-in toggles into one transaction
+ * Singleton, shared by every HabitRepository
+ *
+ * Toggles are held for a short window, keyed by (habitId, epochDay), and the last
+ * requested state of each key wins. A flush applies them all in a single transaction
+ * on the write lane, so checking twenty habits triggers one Room invalidation instead
+ * of twenty. Keys whose final state matches what is already stored (a tap followed by
+ * an undo) are dropped without writing anything.
+ *
+ * Check-ins write only habit_completions rows, which leaves the stored bitmaps stale.
+ * Once toggling has been quiet for BITMAP_SYNC_DELAY_MILLIS, the stale ones are rebuilt
+ * and written back on the bulk lane, so a run of taps costs one bitmap write per habit.
+ */
+final class CompletionWriteBatcher {
+
+    private static final long WINDOW_MILLIS = 250;
+    private static final long BITMAP_SYNC_DELAY_MILLIS = 30_000;
+
+    private static volatile CompletionWriteBatcher instance;
+
+    private final HabitDatabase database;
+    private final HabitDao habitDao;
+    private final DatabaseExecutors executors;
+    private final MonthSummaryCache monthCache;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushTask = this::scheduleFlush;
+    private final Runnable bitmapSyncTask = this::scheduleBitmapSync;
+
+    // Guarded by this; sorted so rows are written in key order
+    private TreeMap<Long, Boolean> pending = new TreeMap<>();
+    private boolean flushScheduled;
+
+    private CompletionWriteBatcher(HabitDatabase database) {
+        this.database = database;
+        this.habitDao = database.habitDao();
+        this.executors = DatabaseExecutors.getInstance();
+        this.monthCache = MonthSummaryCache.getInstance(database);
+    }
+
+    static CompletionWriteBatcher getInstance(HabitDatabase database) {
+        if (instance == null) {
+            synchronized (CompletionWriteBatcher.class) {
+                if (instance == null) {
+                    instance = new CompletionWriteBatcher(database);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a completion change; it is written within WINDOW_MILLIS
+     */
+    synchronized void enqueue(int habitId, int epochDay, boolean completed) {
+        pending.put(key(habitId, epochDay), completed);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            handler.postDelayed(flushTask, WINDOW_MILLIS);
+        }
+    }
+
+    /**
+     * Write everything queued so far without waiting for the window to end
+     */
+    synchronized void flushNow() {
+        if (!flushScheduled) return;
+        handler.removeCallbacks(flushTask);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        executors.write().execute(this::flush);
+    }
+
+    private void flush() {
+        TreeMap<Long, Boolean> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new TreeMap<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) return;
+        database.runInTransaction(() -> applyBatch(batch));
+        for (long key : batch.keySet()) {
+            monthCache.invalidateDay(epochDayOf(key));
+        }
+        // Restart the quiet period; Handler calls are safe from this thread
+        handler.removeCallbacks(bitmapSyncTask);
+        handler.postDelayed(bitmapSyncTask, BITMAP_SYNC_DELAY_MILLIS);
+    }
+
+    private void scheduleBitmapSync() {
+        executors.bulk().execute(habitDao::syncCompletionBitmaps);
+    }
+
+    private void applyBatch(TreeMap<Long, Boolean> batch) {
+        int today = DateUtils.todayEpochDay();
+        for (Map.Entry<Long, Boolean> entry : batch.entrySet()) {
+            // No-op when the day is already in the requested state or the habit was deleted
+            habitDao.setCompletedOnDay(habitIdOf(entry.getKey()), epochDayOf(entry.getKey()),
+                    entry.getValue(), today);
+        }
+    }
+
+    private static long key(int habitId, int epochDay) {
+        return ((long) habitId << 32) | (epochDay & 0xFFFFFFFFL);
+    }
+
+    private static int habitIdOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int epochDayOf(long key) {
+        return (int) key;
+    }
+}
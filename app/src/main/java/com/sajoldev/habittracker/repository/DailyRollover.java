@@ -0,0 +1,101 @@
+package com.sajoldev.habittracker.repository;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.HabitDatabase;
+import com.sajoldev.habittracker.notification.MidnightRolloverReceiver;
+import com.sajoldev.habittracker.utils.DateUtils;
+import com.sajoldev.habittracker.widget.HabitWidgetProvider;
+
+/**
+ * DailyRollover - Starts a new day for every habit
+ *
+ * MIDNIGHT RESET LOGIC:
+ * 1. An alarm fires just after local midnight (MidnightRolloverReceiver)
+ * 2. One transaction clears yesterday's isCheckedToday flags with a single UPDATE and
+ *    recalculates the streaks that could have broken overnight
+ * 3. Widgets are refreshed and the alarm is set for the next midnight
+ *
+ * The day of the last rollover is remembered, so opening the app only does work when
+ * the alarm was missed (device off, time changed); otherwise it costs one preference read
+ * on the write lane.
+ */
+public final class DailyRollover {
+
+    private static final String TAG = "DailyRollover";
+    private static final String PREFS_NAME = "daily_rollover";
+    private static final String KEY_LAST_DAY = "last_rollover_day";
+
+    private DailyRollover() {
+    }
+
+    /**
+     * Catch up if today's rollover has not run yet
+     * Safe to call on the main thread: nothing is read until the task reaches the write lane
+     */
+    public static void runIfNeeded(Context context) {
+        run(context, false, null);
+    }
+
+    /**
+     * Queue a rollover on the write lane, in order with check-ins
+     * @param onDone Runs on the background thread once the rollover is stored; may be null
+     */
+    public static void run(Context context, Runnable onDone) {
+        run(context, true, onDone);
+    }
+
+    /**
+     * The day check runs on the write lane too, so it is ordered with the update of
+     * KEY_LAST_DAY and two catch-ups queued together roll over only once
+     */
+    private static void run(Context context, boolean force, Runnable onDone) {
+        Context appContext = context.getApplicationContext();
+        DatabaseExecutors.getInstance().write().execute(() -> {
+            try {
+                int today = DateUtils.todayEpochDay();
+                if (!force && getPrefs(appContext).getInt(KEY_LAST_DAY, Integer.MIN_VALUE) == today) {
+                    return;
+                }
+                long startOfToday = DateKeys.toDate(today).getTime();
+                int changed = HabitDatabase.getInstance(appContext).habitDao().rollover(today, startOfToday);
+                getPrefs(appContext).edit().putInt(KEY_LAST_DAY, today).apply();
+                Log.i(TAG, "Rolled over to " + DateKeys.toKey(today) + ", " + changed + " streaks changed");
+
+                HabitWidgetProvider.updateAllWidgets(appContext);
+            } finally {
+                if (onDone != null) onDone.run();
+            }
+        });
+    }
+
+    /**
+     * Set the alarm for the next local midnight, replacing any earlier one
+     */
+    public static void schedule(Context context) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        long nextMidnight = DateKeys.toDate(DateUtils.todayEpochDay() + 1).getTime();
+
+        // Inexact is fine: opening the app catches up anyway
+        alarmManager.setWindow(AlarmManager.RTC_WAKEUP, nextMidnight, AlarmManager.INTERVAL_FIFTEEN_MINUTES,
+                getPendingIntent(context));
+    }
+
+    private static PendingIntent getPendingIntent(Context context) {
+        Intent intent = new Intent(context, MidnightRolloverReceiver.class);
+        intent.setAction(MidnightRolloverReceiver.ACTION_ROLLOVER);
+        return PendingIntent.getBroadcast(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -1,13 +1,24 @@
 package com.sajoldev.habittracker.repository;
 
 import android.app.Application;
-import android.os.AsyncTask;
 
 import androidx.lifecycle.LiveData;
 
+import com.sajoldev.habittracker.core.analytics.StatisticsSnapshot;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.data.CategoryCount;
+import com.sajoldev.habittracker.data.CompletionState;
+import com.sajoldev.habittracker.data.DailyStat;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.DayCount;
+import com.sajoldev.habittracker.data.HabitCompletionCount;
 import com.sajoldev.habittracker.data.HabitDao;
 import com.sajoldev.habittracker.data.HabitDatabase;
 import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.data.HabitSummary;
+import com.sajoldev.habittracker.data.WeekdayCount;
+import com.sajoldev.habittracker.utils.ChartResolution;
+import com.sajoldev.habittracker.utils.DateUtils;
 
 import java.util.List;
 
@@ -15,15 +26,22 @@ import java.util.List;
  * HabitRepository - Repository pattern implementation
  * Acts as a single source of truth for all habit data
  * Handles all data operations and provides clean API to ViewModel
+ * Writes run in order on the serial write lane; one-off reads deliver to a callback on the main thread
  */
 public class HabitRepository {
 
     private HabitDao habitDao;
+    private DatabaseExecutors executors;
+    private CompletionWriteBatcher writeBatcher;
+    private MonthSummaryCache monthCache;
     private LiveData<List<HabitEntity>> allHabits;
 
     public HabitRepository(Application application) {
         HabitDatabase database = HabitDatabase.getInstance(application);
         habitDao = database.habitDao();
+        executors = DatabaseExecutors.getInstance();
+        writeBatcher = CompletionWriteBatcher.getInstance(database);
+        monthCache = MonthSummaryCache.getInstance(database);
         allHabits = habitDao.getAllHabits();
     }
 
@@ -35,179 +53,204 @@ public class HabitRepository {
     }
 
     /**
-     * Get all habits synchronously (for background operations)
+     * Get list-screen summaries of all habits, with completion state for the given day
      */
-    public List<HabitEntity> getAllHabitsSync() {
-        return habitDao.getAllHabitsSync();
+    public LiveData<List<HabitSummary>> getHabitSummaries(int epochDay) {
+        return habitDao.getHabitSummaries(epochDay);
     }
 
     /**
-     * Insert a new habit
+     * Get precomputed per-day stats within a range (inclusive)
      */
-    public void insert(HabitEntity habit) {
-        new InsertHabitAsyncTask(habitDao).execute(habit);
+    public LiveData<List<DailyStat>> getDailyStats(int startDay, int endDay) {
+        return habitDao.observeDailyStats(startDay, endDay);
     }
 
     /**
-     * Update an existing habit
+     * Get the cached summary of a calendar month
+     * @param monthStartDay Epoch day of the first of the month
+     * @return The summary, or null if not cached yet; use getDailyStats for live data
      */
-    public void update(HabitEntity habit) {
-        new UpdateHabitAsyncTask(habitDao).execute(habit);
+    public MonthSummary getMonthSummary(int monthStartDay) {
+        return monthCache.get(monthStartDay);
     }
 
     /**
-     * Delete a habit
+     * Load a calendar month and its neighbours into the cache in the background
      */
-    public void delete(HabitEntity habit) {
-        new DeleteHabitAsyncTask(habitDao).execute(habit);
+    public void prefetchMonths(int monthStartDay, int radius) {
+        monthCache.prefetch(monthStartDay, radius);
     }
 
     /**
-     * Delete habit by ID
+     * Get completion totals per chart point within a range (inclusive), from the stats
+     * table of the given resolution; the first point starts on its week or month boundary
      */
-    public void deleteById(int habitId) {
-        new DeleteHabitByIdAsyncTask(habitDao).execute(habitId);
+    public LiveData<List<DayCount>> getCompletionTotals(ChartResolution resolution, int startDay, int endDay) {
+        int bucketStart = resolution.bucketStart(startDay);
+        switch (resolution) {
+            case WEEK:
+                return habitDao.observeWeeklyTotals(bucketStart, endDay);
+            case MONTH:
+                return habitDao.observeMonthlyTotals(bucketStart, endDay);
+            default:
+                return habitDao.observeDailyTotals(bucketStart, endDay);
+        }
     }
 
     /**
-     * Get habit by ID
+     * Get completions per day within a range (inclusive), counted in SQL
      */
-    public HabitEntity getHabitById(int habitId) {
-        return habitDao.getHabitById(habitId);
+    public LiveData<List<DayCount>> getCompletionsPerDay(int startDay, int endDay) {
+        return habitDao.observeCompletionsPerDay(startDay, endDay);
     }
 
     /**
-     * Update streak information
+     * Get one habit's completions per day within a range (inclusive), counted in SQL
      */
-    public void updateStreaks(int habitId, int currentStreak, int longestStreak) {
-        new UpdateStreaksAsyncTask(habitDao).execute(
-                new StreakUpdateData(habitId, currentStreak, longestStreak));
+    public LiveData<List<DayCount>> getCompletionsPerDay(int habitId, int startDay, int endDay) {
+        return habitDao.observeCompletionsPerDay(habitId, startDay, endDay);
     }
 
     /**
-     * Update completion status
+     * Get completions per day of the week within a range (inclusive), counted in SQL
      */
-    public void updateCompletionStatus(int habitId, boolean isChecked, long lastChecked) {
-        new UpdateCompletionAsyncTask(habitDao).execute(
-                new CompletionUpdateData(habitId, isChecked, lastChecked));
+    public LiveData<List<WeekdayCount>> getCompletionsPerWeekday(int startDay, int endDay) {
+        return habitDao.observeCompletionsPerWeekday(startDay, endDay);
     }
 
     /**
-     * Get total habit count
+     * Get habits and completions per category within a range (inclusive), counted in SQL
      */
-    public int getHabitCount() {
-        return habitDao.getHabitCount();
+    public LiveData<List<CategoryCount>> getCategoryCounts(int startDay, int endDay) {
+        return habitDao.observeCategoryCounts(startDay, endDay);
     }
 
-    // AsyncTask classes for database operations
-
-    private static class InsertHabitAsyncTask extends AsyncTask<HabitEntity, Void, Void> {
-        private HabitDao habitDao;
-
-        InsertHabitAsyncTask(HabitDao habitDao) {
-            this.habitDao = habitDao;
-        }
-
-        @Override
-        protected Void doInBackground(HabitEntity... habits) {
-            habitDao.insertHabit(habits[0]);
-            return null;
-        }
+    /**
+     * Get each habit's completions within a range (inclusive), counted in SQL
+     */
+    public LiveData<List<HabitCompletionCount>> getHabitCompletionCounts(int startDay, int endDay) {
+        return habitDao.observeHabitCompletionCounts(startDay, endDay);
     }
 
-    private static class UpdateHabitAsyncTask extends AsyncTask<HabitEntity, Void, Void> {
-        private HabitDao habitDao;
-
-        UpdateHabitAsyncTask(HabitDao habitDao) {
-            this.habitDao = habitDao;
-        }
-
-        @Override
-        protected Void doInBackground(HabitEntity... habits) {
-            habitDao.updateHabit(habits[0]);
-            return null;
-        }
+    /**
+     * Insert a new habit
+     */
+    public void insert(HabitEntity habit) {
+        insert(habit, null);
     }
 
-    private static class DeleteHabitAsyncTask extends AsyncTask<HabitEntity, Void, Void> {
-        private HabitDao habitDao;
-
-        DeleteHabitAsyncTask(HabitDao habitDao) {
-            this.habitDao = habitDao;
-        }
-
-        @Override
-        protected Void doInBackground(HabitEntity... habits) {
-            habitDao.deleteHabit(habits[0]);
-            return null;
-        }
+    /**
+     * Insert a new habit and receive its generated ID on the main thread
+     */
+    public void insert(HabitEntity habit, DatabaseExecutors.Callback<Integer> callback) {
+        executors.write().execute(() -> {
+            int habitId = (int) habitDao.insertHabit(habit);
+            monthCache.invalidateAll();
+            if (callback != null) {
+                executors.main(() -> callback.onResult(habitId));
+            }
+        });
     }
 
-    private static class DeleteHabitByIdAsyncTask extends AsyncTask<Integer, Void, Void> {
-        private HabitDao habitDao;
-
-        DeleteHabitByIdAsyncTask(HabitDao habitDao) {
-            this.habitDao = habitDao;
-        }
-
-        @Override
-        protected Void doInBackground(Integer... habitIds) {
-            habitDao.deleteHabitById(habitIds[0]);
-            return null;
-        }
+    /**
+     * Update the editable details of an existing habit
+     * Its completions and check state are not taken from the entity
+     */
+    public void update(HabitEntity habit) {
+        executors.write().execute(() -> {
+            habitDao.updateHabit(habit, DateUtils.todayEpochDay());
+            monthCache.invalidateAll();
+        });
     }
 
-    private static class UpdateStreaksAsyncTask extends AsyncTask<StreakUpdateData, Void, Void> {
-        private HabitDao habitDao;
+    /**
+     * Delete a habit
+     */
+    public void delete(HabitEntity habit) {
+        executors.write().execute(() -> {
+            habitDao.deleteHabit(habit);
+            monthCache.invalidateAll();
+        });
+    }
 
-        UpdateStreaksAsyncTask(HabitDao habitDao) {
-            this.habitDao = habitDao;
-        }
+    /**
+     * Delete habit by ID
+     */
+    public void deleteById(int habitId) {
+        executors.write().execute(() -> {
+            habitDao.deleteHabitById(habitId);
+            monthCache.invalidateAll();
+        });
+    }
 
-        @Override
-        protected Void doInBackground(StreakUpdateData... data) {
-            habitDao.updateStreaks(data[0].habitId, data[0].currentStreak, data[0].longestStreak);
-            return null;
-        }
+    /**
+     * A value that changes whenever anything the overall statistics depend on does
+     */
+    public LiveData<String> observeHistoryVersion() {
+        return habitDao.observeHistoryVersion();
     }
 
-    private static class UpdateCompletionAsyncTask extends AsyncTask<CompletionUpdateData, Void, Void> {
-        private HabitDao habitDao;
+    /**
+     * Load every habit's history and compute the overall statistics on the read lane
+     * @param callback Receives the snapshot on the main thread
+     */
+    public void computeStatistics(int today, DatabaseExecutors.Callback<StatisticsSnapshot> callback) {
+        executors.query(() -> StatisticsSnapshot.compute(habitDao.getHabitRecords(), today), callback);
+    }
 
-        UpdateCompletionAsyncTask(HabitDao habitDao) {
-            this.habitDao = habitDao;
-        }
+    /**
+     * Get one habit's completed days, matching its habit_completions rows
+     * @param callback Receives the bitmap on the main thread; empty if the habit is gone
+     */
+    public void getCompletionBitmap(int habitId, DatabaseExecutors.Callback<CompletionBitmap> callback) {
+        executors.query(() -> {
+            CompletionState state = habitDao.getCurrentCompletionState(habitId);
+            return state != null ? state.getCompletionBitmap() : new CompletionBitmap();
+        }, callback);
+    }
 
-        @Override
-        protected Void doInBackground(CompletionUpdateData... data) {
-            habitDao.updateCompletionStatus(data[0].habitId, data[0].isChecked, data[0].lastChecked);
-            return null;
-        }
+    /**
+     * Get habit by ID, with its full completion history
+     */
+    public void getHabitById(int habitId, DatabaseExecutors.Callback<HabitEntity> callback) {
+        executors.query(() -> habitDao.getCurrentHabitById(habitId), callback);
     }
 
-    // Helper classes for passing multiple parameters to AsyncTask
+    /**
+     * Mark or unmark a single day for a habit
+     * Rapid toggles are coalesced and committed together, see CompletionWriteBatcher;
+     * streaks are updated incrementally on the write lane, see HabitDao.setCompletedOnDay
+     */
+    public void setCompletion(int habitId, int epochDay, boolean completed) {
+        writeBatcher.enqueue(habitId, epochDay, completed);
+    }
 
-    private static class StreakUpdateData {
-        int habitId;
-        int currentStreak;
-        int longestStreak;
+    /**
+     * Commit any queued check-ins now instead of at the end of the batching window
+     */
+    public void flushPendingWrites() {
+        writeBatcher.flushNow();
+    }
 
-        StreakUpdateData(int habitId, int currentStreak, int longestStreak) {
-            this.habitId = habitId;
-            this.currentStreak = currentStreak;
-            this.longestStreak = longestStreak;
-        }
+    /**
+     * Update streak information
+     */
+    public void updateStreaks(int habitId, int currentStreak, int longestStreak) {
+        executors.write().execute(() -> habitDao.updateStreaks(habitId, currentStreak, longestStreak));
     }
 
-    private static class CompletionUpdateData {
-        int habitId;
-        boolean isChecked;
-        long lastChecked;
+    /**
+     * Update completion status
+     */
+    public void updateCompletionStatus(int habitId, boolean isChecked, long lastChecked) {
+        executors.write().execute(() -> habitDao.updateCompletionStatus(habitId, isChecked, lastChecked));
+    }
 
-        CompletionUpdateData(int habitId, boolean isChecked, long lastChecked) {
-            this.habitId = habitId;
-            this.isChecked = isChecked;
-            this.lastChecked = lastChecked;
-        }
+    /**
+     * Get total habit count
+     */
+    public void getHabitCount(DatabaseExecutors.Callback<Integer> callback) {
+        executors.query(habitDao::getHabitCount, callback);
     }
 }
@@ -0,0 +1,103 @@
+package com.sajoldev.habittracker.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.HabitDao;
+import com.sajoldev.habittracker.data.HabitDatabase;
+import com.sajoldev.habittracker.data.HabitSummary;
+import com.sajoldev.habittracker.utils.AchievementManager;
+import com.sajoldev.habittracker.utils.DateUtils;
+import com.sajoldev.habittracker.widget.HabitWidgetProvider;
+
+import java.util.List;
+
+/**
+ * HabitSideEffects - Achievement checks and widget refreshes that follow habit changes
+ * Singleton, shared by every screen in the process
+ *
+ * Screens report each new list of habit summaries. Reports are held for a short window
+ * and only the latest is handled, so a burst of check-ins costs one evaluation. The
+ * evaluation runs on the read lane and skips each effect whose inputs are unchanged
+ * since it last ran: achievements depend only on counts and streaks, and widgets only
+ * on today's first few habits.
+ */
+public final class HabitSideEffects {
+
+    private static final long WINDOW_MILLIS = 300;
+
+    private static volatile HabitSideEffects instance;
+
+    private final Context context;
+    private final HabitDao habitDao;
+    private final DatabaseExecutors executors;
+    private final AchievementManager achievementManager;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable dispatchTask = this::dispatch;
+
+    // Main thread only; the latest report not yet handed to the read lane
+    private List<HabitSummary> pendingHabits;
+    private int pendingDay;
+
+    // Guarded by this; inputs of the last run of each effect, null before the first
+    private Long achievementSignature;
+    private Long widgetSignature;
+
+    private HabitSideEffects(Context context) {
+        this.context = context.getApplicationContext();
+        this.habitDao = HabitDatabase.getInstance(this.context).habitDao();
+        this.executors = DatabaseExecutors.getInstance();
+        this.achievementManager = new AchievementManager(this.context);
+    }
+
+    public static HabitSideEffects getInstance(Context context) {
+        if (instance == null) {
+            synchronized (HabitSideEffects.class) {
+                if (instance == null) {
+                    instance = new HabitSideEffects(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Report a new list of habit summaries; effects run within WINDOW_MILLIS
+     * Call on the main thread
+     * @param epochDay Day the summaries' completion state is for
+     */
+    public void onHabitsChanged(List<HabitSummary> habits, int epochDay) {
+        boolean scheduled = pendingHabits != null;
+        pendingHabits = habits;
+        pendingDay = epochDay;
+        if (!scheduled) {
+            handler.postDelayed(dispatchTask, WINDOW_MILLIS);
+        }
+    }
+
+    private void dispatch() {
+        List<HabitSummary> habits = pendingHabits;
+        int day = pendingDay;
+        pendingHabits = null;
+        executors.read().execute(() -> run(habits, day));
+    }
+
+    private synchronized void run(List<HabitSummary> habits, int day) {
+        long achievements = AchievementManager.signatureOf(habits);
+        if (achievementSignature == null || achievementSignature != achievements) {
+            achievementSignature = achievements;
+            achievementManager.checkAchievements(context, habits);
+        }
+
+        // Widgets show today; reuse the report when it is for today
+        int today = DateUtils.todayEpochDay();
+        List<HabitSummary> todays = day == today ? habits : habitDao.getHabitSummariesSync(today);
+        long widgets = HabitWidgetProvider.signatureOf(todays, today);
+        if (widgetSignature == null || widgetSignature != widgets) {
+            widgetSignature = widgets;
+            HabitWidgetProvider.updateAllWidgets(context, todays);
+        }
+    }
+}
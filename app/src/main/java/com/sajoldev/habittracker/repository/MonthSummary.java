@@ -0,0 +1,80 @@
+package com.sajoldev.habittracker.repository;
+
+import com.sajoldev.habittracker.data.DailyStat;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MonthSummary - Per-day completion counts of one calendar month
+ * Built from the month's daily_stats rows and never modified afterwards, so it can be
+ * cached and shared across threads. The version is the MonthSummaryCache generation
+ * it was loaded at.
+ */
+public final class MonthSummary {
+
+    private final int monthStartDay;
+    private final int[] completedCounts;
+    private final int[] activeHabitCounts;
+    private final long version;
+
+    private MonthSummary(int monthStartDay, int[] completedCounts, int[] activeHabitCounts, long version) {
+        this.monthStartDay = monthStartDay;
+        this.completedCounts = completedCounts;
+        this.activeHabitCounts = activeHabitCounts;
+        this.version = version;
+    }
+
+    /**
+     * Epoch day of the first of the month containing the given day
+     */
+    public static int monthStartOf(int epochDay) {
+        return (int) LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+    }
+
+    /**
+     * Epoch day of the first of the month a number of months away from the given month
+     */
+    public static int addMonths(int monthStartDay, int months) {
+        return (int) LocalDate.ofEpochDay(monthStartDay).plusMonths(months).toEpochDay();
+    }
+
+    /**
+     * Last epoch day of the month starting on the given day
+     */
+    public static int monthEndOf(int monthStartDay) {
+        return monthStartDay + LocalDate.ofEpochDay(monthStartDay).lengthOfMonth() - 1;
+    }
+
+    static MonthSummary of(int monthStartDay, List<DailyStat> stats, long version) {
+        int days = monthEndOf(monthStartDay) - monthStartDay + 1;
+        int[] completed = new int[days];
+        int[] active = new int[days];
+        for (DailyStat stat : stats) {
+            int i = stat.getEpochDay() - monthStartDay;
+            if (i >= 0 && i < days) {
+                completed[i] = stat.getCompletedCount();
+                active[i] = stat.getActiveHabitCount();
+            }
+        }
+        return new MonthSummary(monthStartDay, completed, active, version);
+    }
+
+    public int getMonthStartDay() { return monthStartDay; }
+
+    public int getDaysInMonth() { return completedCounts.length; }
+
+    /**
+     * Completions per day, indexed from the first of the month
+     */
+    public int[] getCompletedCounts() { return Arrays.copyOf(completedCounts, completedCounts.length); }
+
+    /**
+     * Habits that existed on each day, indexed from the first of the month
+     * 0 for days with no completion, which have no daily_stats row
+     */
+    public int[] getActiveHabitCounts() { return Arrays.copyOf(activeHabitCounts, activeHabitCounts.length); }
+
+    public long getVersion() { return version; }
+}
@@ -0,0 +1,131 @@
+package com.sajoldev.habittracker.repository;
+
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.HabitDao;
+import com.sajoldev.habittracker.data.HabitDatabase;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * MonthSummaryCache - Recently viewed calendar months, kept in memory
+ * Singleton, shared by every screen and writer in the process
+ *
+ * Months are keyed by the epoch day of their first day and evicted least recently used
+ * first. Months around the displayed one are loaded ahead of time on the read lane, so
+ * paging through the calendar shows counts without waiting for a query.
+ *
+ * Writers invalidate what they change: a check-in drops only the month of its day,
+ * while adding, editing, deleting or importing habits drops everything. Every
+ * invalidation advances the generation; a load that started before an invalidation of
+ * its month is discarded instead of cached.
+ */
+public final class MonthSummaryCache {
+
+    private static final int MAX_MONTHS = 24;
+
+    private static volatile MonthSummaryCache instance;
+
+    private final HabitDao habitDao;
+    private final DatabaseExecutors executors;
+
+    // All guarded by this
+    private final LinkedHashMap<Integer, MonthSummary> months =
+            new LinkedHashMap<Integer, MonthSummary>(MAX_MONTHS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, MonthSummary> eldest) {
+                    return size() > MAX_MONTHS;
+                }
+            };
+    private final Set<Integer> loading = new HashSet<>();
+    private final Map<Integer, Long> invalidatedAt = new HashMap<>();
+    private long generation;
+    private long clearedAt;
+
+    private MonthSummaryCache(HabitDatabase database) {
+        this.habitDao = database.habitDao();
+        this.executors = DatabaseExecutors.getInstance();
+    }
+
+    public static MonthSummaryCache getInstance(HabitDatabase database) {
+        if (instance == null) {
+            synchronized (MonthSummaryCache.class) {
+                if (instance == null) {
+                    instance = new MonthSummaryCache(database);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get a cached month
+     * @param monthStartDay Epoch day of the first of the month
+     * @return The month's summary, or null if it is not cached (or was invalidated)
+     */
+    public synchronized MonthSummary get(int monthStartDay) {
+        return months.get(monthStartDay);
+    }
+
+    /**
+     * Load the given month and the months within radius of it, skipping any already cached
+     */
+    public void prefetch(int monthStartDay, int radius) {
+        // Nearest months first, so the ones a swipe reaches next are ready soonest
+        load(monthStartDay);
+        for (int distance = 1; distance <= radius; distance++) {
+            load(MonthSummary.addMonths(monthStartDay, -distance));
+            load(MonthSummary.addMonths(monthStartDay, distance));
+        }
+    }
+
+    /**
+     * Drop the month containing a day whose completions changed
+     */
+    public synchronized void invalidateDay(int epochDay) {
+        int monthStartDay = MonthSummary.monthStartOf(epochDay);
+        invalidatedAt.put(monthStartDay, ++generation);
+        months.remove(monthStartDay);
+        // A load already in flight will be discarded; let the next prefetch start a fresh one
+        loading.remove(monthStartDay);
+    }
+
+    /**
+     * Drop every month, after changes that affect all days (habits added, edited, deleted or imported)
+     */
+    public synchronized void invalidateAll() {
+        clearedAt = ++generation;
+        invalidatedAt.clear();
+        months.clear();
+        loading.clear();
+    }
+
+    private void load(int monthStartDay) {
+        long version;
+        synchronized (this) {
+            if (months.containsKey(monthStartDay) || !loading.add(monthStartDay)) return;
+            version = generation;
+        }
+        executors.read().execute(() -> {
+            MonthSummary summary = null;
+            try {
+                summary = MonthSummary.of(monthStartDay,
+                        habitDao.getDailyStats(monthStartDay, MonthSummary.monthEndOf(monthStartDay)), version);
+            } finally {
+                put(monthStartDay, summary, version);
+            }
+        });
+    }
+
+    private synchronized void put(int monthStartDay, MonthSummary summary, long version) {
+        loading.remove(monthStartDay);
+        Long invalidated = invalidatedAt.get(monthStartDay);
+        if (summary == null || version < clearedAt || (invalidated != null && version < invalidated)) {
+            return;
+        }
+        months.put(monthStartDay, summary);
+    }
+}
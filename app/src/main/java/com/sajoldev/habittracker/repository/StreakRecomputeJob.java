@@ -0,0 +1,198 @@
+package com.sajoldev.habittracker.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.sajoldev.habittracker.core.analytics.Streaks;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.StreakIndex;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+import com.sajoldev.habittracker.data.CompletionState;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.HabitCompletion;
+import com.sajoldev.habittracker.data.HabitDao;
+import com.sajoldev.habittracker.data.HabitDatabase;
+import com.sajoldev.habittracker.utils.DateUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * StreakRecomputeJob - Rebuilds the stored streaks and bitmaps of every habit from its history
+ *
+ * Check-ins keep the stored streaks in step one day at a time, but history that arrives
+ * from an import, or streaks stored under older rules, can disagree with the completions
+ * actually recorded. This job rebuilds each habit's bitmap from its habit_completions rows,
+ * the record of completions, and stores it wherever the stored copy differs or is stale. It
+ * then derives the true current and longest streak from the rebuilt bitmap in one linear
+ * pass over its runs, spreading the habits across cores.
+ *
+ * Reading and computing happen outside any transaction, so check-ins are not held up.
+ * Only the changed rows are written, in one short transaction, and each write is guarded
+ * on the habit's completionVersion and schedule; a habit checked in or edited meanwhile
+ * is skipped, since that write kept its own streaks up to date.
+ *
+ * Runs on the bulk lane, after every import, whether or not it succeeded, and whenever
+ * the database schema version or the streak rules change.
+ */
+public final class StreakRecomputeJob {
+
+    private static final String TAG = "StreakRecomputeJob";
+    private static final String PREFS_NAME = "streak_recompute";
+    private static final String KEY_SCHEMA_VERSION = "schema_version";
+    private static final String KEY_RULES_VERSION = "rules_version";
+
+    // Bump when the way streaks are derived changes (2: only scheduled weekdays count,
+    // 3: unmarking a day can lower the longest streak)
+    private static final int RULES_VERSION = 3;
+
+    /**
+     * Outcome of one run, for logging and diagnostics
+     */
+    public static final class Result {
+        public final int habitCount;
+        public final int changedCount;
+        /** Habits whose stored bitmap disagreed with their habit_completions rows */
+        public final int rebuiltBitmapCount;
+        /** Habits left alone because they changed while the job was computing */
+        public final int skippedCount;
+        public final long elapsedMillis;
+
+        Result(int habitCount, int changedCount, int rebuiltBitmapCount, int skippedCount, long elapsedMillis) {
+            this.habitCount = habitCount;
+            this.changedCount = changedCount;
+            this.rebuiltBitmapCount = rebuiltBitmapCount;
+            this.skippedCount = skippedCount;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "Recomputed streaks of %d habits (%d changed, %d bitmaps rebuilt, %d skipped) in %d ms",
+                    habitCount, changedCount, rebuiltBitmapCount, skippedCount, elapsedMillis);
+        }
+    }
+
+    private StreakRecomputeJob() {
+    }
+
+    /**
+     * Queue a recompute of every habit
+     * @param callback Receives the result on the main thread; may be null
+     */
+    public static void run(Context context, DatabaseExecutors.Callback<Result> callback) {
+        Context appContext = context.getApplicationContext();
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        executors.bulk().execute(() -> {
+            Result result = recompute(HabitDatabase.getInstance(appContext));
+            Log.i(TAG, result.toString());
+            if (callback != null) {
+                executors.main(() -> callback.onResult(result));
+            }
+        });
+    }
+
+    /**
+     * Queue a recompute if the database schema or the streak rules changed since the last one
+     * Call once at startup
+     */
+    public static void runIfSchemaChanged(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        if (prefs.getInt(KEY_SCHEMA_VERSION, 0) == HabitDatabase.VERSION
+                && prefs.getInt(KEY_RULES_VERSION, 0) == RULES_VERSION) {
+            return;
+        }
+        run(context, result -> prefs.edit()
+                .putInt(KEY_SCHEMA_VERSION, HabitDatabase.VERSION)
+                .putInt(KEY_RULES_VERSION, RULES_VERSION)
+                .apply());
+    }
+
+    private static Result recompute(HabitDatabase database) {
+        long startedAt = System.nanoTime();
+        HabitDao habitDao = database.habitDao();
+        int today = DateUtils.todayEpochDay();
+
+        // States are read before the rows, so a check-in in between leaves a state's
+        // completionVersion behind the stored one and the guarded writes skip that habit
+        List<CompletionState> states = habitDao.getAllCompletionStates();
+        Map<Integer, CompletionBitmap> bitmaps = bitmapsFromRows(habitDao.getAllCompletions());
+
+        boolean[] rebuilt = new boolean[states.size()];
+        for (int i = 0; i < states.size(); i++) {
+            CompletionState state = states.get(i);
+            CompletionBitmap fromRows = bitmaps.getOrDefault(state.getId(), new CompletionBitmap());
+            rebuilt[i] = !state.isBitmapCurrent() || !fromRows.equals(state.getCompletionBitmap());
+            state.setCompletionBitmap(fromRows);
+        }
+
+        boolean[] changed = new boolean[states.size()];
+        IntStream.range(0, states.size()).parallel()
+                .forEach(i -> changed[i] = recompute(states.get(i), today));
+
+        // Only the changed rows are written, in one short transaction
+        return database.runInTransaction(() -> {
+            int changedCount = 0;
+            int rebuiltCount = 0;
+            int skippedCount = 0;
+            for (int i = 0; i < states.size(); i++) {
+                if (!rebuilt[i] && !changed[i]) continue;
+                CompletionState state = states.get(i);
+                if (rebuilt[i]) {
+                    if (habitDao.storeCompletionBitmap(state.getId(), state.getCompletionBitmap(),
+                            state.getCompletionVersion()) == 0) {
+                        skippedCount++;
+                        continue;
+                    }
+                    rebuiltCount++;
+                }
+                if (changed[i]) {
+                    if (habitDao.updateStreaksIfUnchanged(state.getId(), state.getCurrentStreak(),
+                            state.getLongestStreak(), state.getCompletionVersion(), state.getFrequency(),
+                            state.getSelectedDays()) == 0) {
+                        skippedCount++;
+                        continue;
+                    }
+                    changedCount++;
+                }
+            }
+            return new Result(states.size(), changedCount, rebuiltCount, skippedCount,
+                    (System.nanoTime() - startedAt) / 1_000_000);
+        });
+    }
+
+    /**
+     * Build each habit's bitmap from its completion rows
+     * Habits with no rows are left out
+     */
+    private static Map<Integer, CompletionBitmap> bitmapsFromRows(List<HabitCompletion> completions) {
+        Map<Integer, CompletionBitmap> bitmaps = new HashMap<>();
+        for (HabitCompletion completion : completions) {
+            bitmaps.computeIfAbsent(completion.getHabitId(), id -> new CompletionBitmap())
+                    .add(completion.getEpochDay());
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Derive one habit's streaks from its history
+     * @return true if they differ from the stored values
+     */
+    private static boolean recompute(CompletionState state, int today) {
+        WeekdaySchedule schedule = state.getSchedule();
+        StreakIndex index = StreakIndex.of(state.getCompletionBitmap(), schedule);
+        int currentStreak = Streaks.currentStreak(index, schedule, today);
+        int longestStreak = index.longestStreak();
+        if (currentStreak == state.getCurrentStreak() && longestStreak == state.getLongestStreak()) {
+            return false;
+        }
+        state.setCurrentStreak(currentStreak);
+        state.setLongestStreak(longestStreak);
+        return true;
+    }
+}
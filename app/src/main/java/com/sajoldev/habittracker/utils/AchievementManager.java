@@ -3,7 +3,7 @@ package com.sajoldev.habittracker.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
 
-import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.data.HabitSummary;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,7 +28,7 @@ public class AchievementManager {
         prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
 
-    public void checkAchievements(Context context, List<HabitEntity> habits) {
+    public void checkAchievements(Context context, List<HabitSummary> habits) {
         if (habits.size() >= 1 && !isUnlocked(FIRST_HABIT)) {
             unlock(FIRST_HABIT);
         }
@@ -37,8 +37,8 @@ public class AchievementManager {
         int bestStreak = 0;
         boolean hasPerfectWeek = false;
 
-        for (HabitEntity habit : habits) {
-            totalCompletions += habit.getCompletionDatesList().size();
+        for (HabitSummary habit : habits) {
+            totalCompletions += habit.getCompletionCount();
             if (habit.getCurrentStreak() > bestStreak) {
                 bestStreak = habit.getCurrentStreak();
             }
@@ -57,6 +57,23 @@ public class AchievementManager {
         if (totalCompletions >= 100 && !isUnlocked(COMPLETION_100)) unlock(COMPLETION_100);
     }
 
+    /**
+     * Hash of everything checkAchievements reads: the habit count, total completions and best streak
+     * Equal signatures unlock the same achievements
+     */
+    public static long signatureOf(List<HabitSummary> habits) {
+        long totalCompletions = 0;
+        int bestStreak = 0;
+        for (HabitSummary habit : habits) {
+            totalCompletions += habit.getCompletionCount();
+            bestStreak = Math.max(bestStreak, habit.getCurrentStreak());
+        }
+        long hash = habits.size();
+        hash = 31 * hash + totalCompletions;
+        hash = 31 * hash + bestStreak;
+        return hash;
+    }
+
     private void unlock(String achievement) {
         prefs.edit().putBoolean(achievement, true).apply();
     }
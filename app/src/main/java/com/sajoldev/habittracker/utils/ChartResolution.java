@@ -0,0 +1,53 @@
+package com.sajoldev.habittracker.utils;
+
+import java.time.LocalDate;
+
+/**
+ * ChartResolution - How many days one chart point stands for
+ * Each resolution is backed by its own stats table (daily_stats, weekly_stats, monthly_stats),
+ * so a chart reads one row per point whatever the range
+ */
+public enum ChartResolution {
+    DAY,
+    WEEK,
+    MONTH;
+
+    /**
+     * Pick the finest resolution that plots a span in at most maxPoints points
+     * Months are the coarsest; past that, points are simply drawn closer together
+     */
+    public static ChartResolution forSpan(int days, int maxPoints) {
+        if (days <= maxPoints) return DAY;
+        if ((days + 6) / 7 <= maxPoints) return WEEK;
+        return MONTH;
+    }
+
+    /**
+     * First day of the point containing a day: the day itself, its week's Monday,
+     * or the first of its month
+     */
+    public int bucketStart(int epochDay) {
+        switch (this) {
+            case WEEK:
+                return epochDay - Math.floorMod(epochDay + 3, 7);
+            case MONTH:
+                return (int) LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+            default:
+                return epochDay;
+        }
+    }
+
+    /**
+     * First day of the point after the one starting on bucketStart
+     */
+    public int nextBucket(int bucketStart) {
+        switch (this) {
+            case WEEK:
+                return bucketStart + 7;
+            case MONTH:
+                return (int) LocalDate.ofEpochDay(bucketStart).plusMonths(1).toEpochDay();
+            default:
+                return bucketStart + 1;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.sajoldev.habittracker.utils;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.data.DayCount;
+
+import java.util.List;
+
+/**
+ * CompletionSeries - Completions per chart point over a range, at one resolution
+ * Points without completions are filled with 0, so point i can be plotted at x = i
+ * The first point covers its whole week or month, matching the rollup tables
+ */
+public final class CompletionSeries {
+
+    private final ChartResolution resolution;
+    private final int startDay;
+    private final int endDay;
+    private final int[] bucketStarts;
+    private final int[] counts;
+
+    private CompletionSeries(ChartResolution resolution, int startDay, int endDay) {
+        this.resolution = resolution;
+        this.startDay = startDay;
+        this.endDay = endDay;
+        int size = 0;
+        for (int day = resolution.bucketStart(startDay); day <= endDay; day = resolution.nextBucket(day)) {
+            size++;
+        }
+        bucketStarts = new int[size];
+        counts = new int[size];
+        int day = resolution.bucketStart(startDay);
+        for (int i = 0; i < size; i++) {
+            bucketStarts[i] = day;
+            day = resolution.nextBucket(day);
+        }
+    }
+
+    /**
+     * Build a series from the rows of a stats table at the same resolution
+     * Rows outside the range are ignored
+     */
+    public static CompletionSeries of(List<DayCount> rows, ChartResolution resolution, int startDay, int endDay) {
+        CompletionSeries series = new CompletionSeries(resolution, startDay, endDay);
+        if (rows != null) {
+            for (DayCount row : rows) {
+                int i = series.indexOf(row.getEpochDay());
+                if (i >= 0) series.counts[i] += row.getCount();
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Build the series of one habit from its bitmap, one popcount range per point
+     */
+    public static CompletionSeries of(CompletionBitmap bitmap, ChartResolution resolution, int startDay, int endDay) {
+        CompletionSeries series = new CompletionSeries(resolution, startDay, endDay);
+        for (int i = 0; i < series.counts.length; i++) {
+            int to = Math.min(resolution.nextBucket(series.bucketStarts[i]) - 1, endDay);
+            series.counts[i] = bitmap.countRange(series.bucketStarts[i], to);
+        }
+        return series;
+    }
+
+    private int indexOf(int bucketStart) {
+        int lo = 0;
+        int hi = bucketStarts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bucketStarts[mid] < bucketStart) lo = mid + 1;
+            else if (bucketStarts[mid] > bucketStart) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public ChartResolution getResolution() { return resolution; }
+
+    public int getStartDay() { return startDay; }
+
+    public int getEndDay() { return endDay; }
+
+    public int size() { return counts.length; }
+
+    /** First day of point i */
+    public int getBucketStart(int i) { return bucketStarts[i]; }
+
+    public int getCount(int i) { return counts[i]; }
+}
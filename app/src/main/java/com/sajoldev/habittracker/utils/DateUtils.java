@@ -1,15 +1,17 @@
 package com.sajoldev.habittracker.utils;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import com.sajoldev.habittracker.core.date.DateKeys;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
 /**
  * DateUtils - Utility class for date operations
  * Centralizes all date formatting and manipulation
+ * Day keys and epoch days come from DateKeys; all formatters here are immutable and thread-safe
  */
 public class DateUtils {
 
@@ -17,49 +19,70 @@ public class DateUtils {
     public static final String DISPLAY_FORMAT = "MMM dd";
     public static final String DAY_FORMAT = "EEE";
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.getDefault());
-    private static final SimpleDateFormat displayFormat = new SimpleDateFormat(DISPLAY_FORMAT, Locale.getDefault());
-    private static final SimpleDateFormat dayFormat = new SimpleDateFormat(DAY_FORMAT, Locale.getDefault());
+    private static final DateTimeFormatter displayFormat = DateTimeFormatter.ofPattern(DISPLAY_FORMAT);
+    private static final DateTimeFormatter dayFormat = DateTimeFormatter.ofPattern(DAY_FORMAT);
+
+    /**
+     * Convert Date to a local epoch day (days since 1970-01-01)
+     * Pure arithmetic, no Calendar or formatter is created
+     */
+    public static int toEpochDay(Date date) {
+        return DateKeys.toEpochDay(date);
+    }
+
+    /**
+     * Get today's local epoch day
+     */
+    public static int todayEpochDay() {
+        return DateKeys.today();
+    }
+
+    /**
+     * Convert a local epoch day back to a Date at the start of that day
+     */
+    public static Date epochDayToDate(int epochDay) {
+        return DateKeys.toDate(epochDay);
+    }
 
     /**
      * Convert Date to string format (yyyy-MM-dd)
      */
     public static String dateToString(Date date) {
         if (date == null) return "";
-        return dateFormat.format(date);
+        return DateKeys.toKey(date);
     }
 
     /**
      * Convert string to Date
+     * Falls back to the current time if the string is not a valid date
      */
     public static Date stringToDate(String dateStr) {
-        try {
-            return dateFormat.parse(dateStr);
-        } catch (ParseException e) {
-            e.printStackTrace();
+        int epochDay = DateKeys.parseKey(dateStr);
+        if (epochDay == DateKeys.INVALID) {
             return new Date();
         }
+        return DateKeys.toDate(epochDay);
     }
 
     /**
      * Get today's date as string
      */
     public static String getTodayString() {
-        return dateFormat.format(new Date());
+        return DateKeys.toKey(DateKeys.today());
     }
 
     /**
      * Get formatted display date (e.g., "Jan 15")
      */
     public static String getDisplayDate(Date date) {
-        return displayFormat.format(date);
+        return displayFormat.format(toLocalDate(date));
     }
 
     /**
      * Get day name (e.g., "Mon", "Tue")
      */
     public static String getDayName(Date date) {
-        return dayFormat.format(date);
+        return dayFormat.format(toLocalDate(date));
     }
 
     /**
@@ -67,19 +90,14 @@ public class DateUtils {
      */
     public static boolean isSameDay(Date date1, Date date2) {
         if (date1 == null || date2 == null) return false;
-        Calendar cal1 = Calendar.getInstance();
-        Calendar cal2 = Calendar.getInstance();
-        cal1.setTime(date1);
-        cal2.setTime(date2);
-        return cal1.get(Calendar.YEAR) == cal2.get(Calendar.YEAR) &&
-               cal1.get(Calendar.DAY_OF_YEAR) == cal2.get(Calendar.DAY_OF_YEAR);
+        return DateKeys.toEpochDay(date1) == DateKeys.toEpochDay(date2);
     }
 
     /**
      * Check if date is today
      */
     public static boolean isToday(Date date) {
-        return isSameDay(date, new Date());
+        return date != null && DateKeys.toEpochDay(date) == DateKeys.today();
     }
 
     /**
@@ -104,9 +122,7 @@ public class DateUtils {
      * Check if a date is yesterday
      */
     public static boolean isYesterday(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -1);
-        return isSameDay(date, cal.getTime());
+        return date != null && DateKeys.toEpochDay(date) == DateKeys.today() - 1;
     }
 
     /**
@@ -168,7 +184,13 @@ public class DateUtils {
      * Get short day and month format (e.g., "Jan 15")
      */
     public static String getDayMonthShort(Date date) {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd", Locale.getDefault());
-        return sdf.format(date);
+        return displayFormat.format(toLocalDate(date));
+    }
+
+    /**
+     * Convert Date to the LocalDate it falls on in the device time zone
+     */
+    public static LocalDate toLocalDate(Date date) {
+        return DateKeys.toLocalDate(DateKeys.toEpochDay(date));
     }
 }
@@ -8,15 +8,18 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.pdf.PdfDocument;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.os.Environment;
 import android.widget.Toast;
 
 import androidx.core.content.FileProvider;
 
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.DateConverter;
 import com.sajoldev.habittracker.data.HabitDao;
 import com.sajoldev.habittracker.data.HabitDatabase;
 import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.repository.MonthSummaryCache;
+import com.sajoldev.habittracker.repository.StreakRecomputeJob;
 
 import org.json.JSONArray;
 import org.json.JSONException;
@@ -30,11 +33,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
 public class ExportManager {
 
@@ -46,18 +48,14 @@ public class ExportManager {
     }
 
     public static void exportToPDF(Context context) {
-        new AsyncTask<Void, Void, List<HabitEntity>>() {
-            @Override
-            protected List<HabitEntity> doInBackground(Void... voids) {
-                HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
-                return habitDao.getAllHabitsSync();
-            }
-
-            @Override
-            protected void onPostExecute(List<HabitEntity> habits) {
-                generatePDF(context, habits);
-            }
-        }.execute();
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        executors.bulk().execute(() -> {
+            HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
+            // The report reads each habit's bitmap, so bring them in step with the rows first
+            habitDao.syncCompletionBitmaps();
+            List<HabitEntity> habits = habitDao.getAllHabitsSync();
+            executors.main(() -> generatePDF(context, habits));
+        });
     }
 
     private static void generatePDF(Context context, List<HabitEntity> habits) {
@@ -140,7 +138,7 @@ public class ExportManager {
             canvas.drawText(String.valueOf(habit.getCurrentStreak()), xPos, yPosition, textPaint);
             xPos += colWidths[3];
 
-            canvas.drawText(String.valueOf(habit.getCompletionDatesList().size()), xPos, yPosition, textPaint);
+            canvas.drawText(String.valueOf(habit.getCompletionCount()), xPos, yPosition, textPaint);
 
             yPosition += 30;
         }
@@ -173,10 +171,23 @@ public class ExportManager {
     }
 
     public static void exportToJSON(Context context) {
-        new AsyncTask<Void, Void, String>() {
-            @Override
-            protected String doInBackground(Void... voids) {
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        executors.bulk().execute(() -> {
+            String jsonContent = buildExportJSON(context);
+            executors.main(() -> {
+                if (jsonContent != null) {
+                    saveJSONFile(context, jsonContent);
+                } else {
+                    Toast.makeText(context, "Export failed", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
+    private static String buildExportJSON(Context context) {
                 HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
+                // Completed days are exported from each habit's bitmap
+                habitDao.syncCompletionBitmaps();
                 List<HabitEntity> habits = habitDao.getAllHabitsSync();
 
                 try {
@@ -215,23 +226,23 @@ public class ExportManager {
                     e.printStackTrace();
                     return null;
                 }
-            }
+    }
 
-            @Override
-            protected void onPostExecute(String jsonContent) {
-                if (jsonContent != null) {
-                    saveJSONFile(context, jsonContent);
-                } else {
-                    Toast.makeText(context, "Export failed", Toast.LENGTH_SHORT).show();
+    public static void importFromJSON(Context context, Uri fileUri) {
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        executors.bulk().execute(() -> {
+            String jsonContent = readFile(context, fileUri);
+            executors.main(() -> {
+                if (jsonContent == null) {
+                    Toast.makeText(context, "Failed to read file", Toast.LENGTH_SHORT).show();
+                    return;
                 }
-            }
-        }.execute();
+                processImport(context, jsonContent);
+            });
+        });
     }
 
-    public static void importFromJSON(Context context, Uri fileUri) {
-        new AsyncTask<Void, Void, String>() {
-            @Override
-            protected String doInBackground(Void... voids) {
+    private static String readFile(Context context, Uri fileUri) {
                 try {
                     InputStream inputStream = context.getContentResolver().openInputStream(fileUri);
                     BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
@@ -247,17 +258,6 @@ public class ExportManager {
                     e.printStackTrace();
                     return null;
                 }
-            }
-
-            @Override
-            protected void onPostExecute(String jsonContent) {
-                if (jsonContent == null) {
-                    Toast.makeText(context, "Failed to read file", Toast.LENGTH_SHORT).show();
-                    return;
-                }
-                processImport(context, jsonContent);
-            }
-        }.execute();
     }
 
     private static void processImport(Context context, String jsonContent) {
@@ -265,22 +265,23 @@ public class ExportManager {
             JSONObject root = new JSONObject(jsonContent);
             JSONArray habitsArray = root.getJSONArray("habits");
 
-            new AsyncTask<Void, Void, List<HabitEntity>>() {
+            HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
+            DatabaseExecutors.getInstance().query(habitDao::getHabitCount, new DatabaseExecutors.Callback<Integer>() {
                 @Override
-                protected List<HabitEntity> doInBackground(Void... voids) {
-                    HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
-                    return habitDao.getAllHabitsSync();
-                }
-
-                @Override
-                protected void onPostExecute(List<HabitEntity> existingHabits) {
-                    if (existingHabits.size() > 0) {
-                        showImportWarningDialog(context, habitsArray, existingHabits.size(), true);
+                public void onResult(Integer existingCount) {
+                    if (existingCount > 0) {
+                        showImportWarningDialog(context, habitsArray, existingCount, true);
                     } else {
                         performImport(context, habitsArray, true);
                     }
                 }
-            }.execute();
+
+                @Override
+                public void onError(Exception error) {
+                    DatabaseExecutors.Callback.super.onError(error);
+                    Toast.makeText(context, "Import failed", Toast.LENGTH_SHORT).show();
+                }
+            });
 
         } catch (JSONException e) {
             Toast.makeText(context, "Invalid JSON file", Toast.LENGTH_SHORT).show();
@@ -304,9 +305,25 @@ public class ExportManager {
     }
 
     private static void performImport(Context context, JSONArray habitsArray, boolean replace) {
-        new AsyncTask<Void, Void, Boolean>() {
-            @Override
-            protected Boolean doInBackground(Void... voids) {
+        // Runs on the bulk lane so check-ins on the write lane are not queued behind it
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        executors.bulk().execute(() -> {
+            boolean success = importHabits(context, habitsArray, replace);
+            // Even a failed import may have written some habits, or deleted them all first
+            MonthSummaryCache.getInstance(HabitDatabase.getInstance(context)).invalidateAll();
+            // Imported streak values may not match the imported history
+            StreakRecomputeJob.run(context, null);
+            executors.main(() -> {
+                if (success) {
+                    Toast.makeText(context, "Import successful!", Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(context, "Import failed", Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
+    private static boolean importHabits(Context context, JSONArray habitsArray, boolean replace) {
                 try {
                     HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
 
@@ -347,14 +364,18 @@ public class ExportManager {
 
                         JSONArray completedDates = habitObj.optJSONArray("completedDates");
                         if (completedDates != null) {
-                            Set<String> datesSet = new HashSet<>();
+                            int[] days = new int[completedDates.length()];
+                            int count = 0;
                             for (int j = 0; j < completedDates.length(); j++) {
-                                datesSet.add(completedDates.getString(j));
+                                int epochDay = DateConverter.keyToEpochDay(completedDates.getString(j));
+                                if (epochDay != Integer.MIN_VALUE) {
+                                    days[count++] = epochDay;
+                                }
                             }
-                            habit.setCompletedDates(datesSet);
+                            habit.setCompletedDays(Arrays.copyOf(days, count));
                         }
 
-                        habitDao.insertHabit(habit);
+                        habitDao.insertHabitWithCompletions(habit);
                     }
 
                     return true;
@@ -362,17 +383,6 @@ public class ExportManager {
                     e.printStackTrace();
                     return false;
                 }
-            }
-
-            @Override
-            protected void onPostExecute(Boolean success) {
-                if (success) {
-                    Toast.makeText(context, "Import successful!", Toast.LENGTH_LONG).show();
-                } else {
-                    Toast.makeText(context, "Import failed", Toast.LENGTH_SHORT).show();
-                }
-            }
-        }.execute();
     }
 
     private static void saveJSONFile(Context context, String content) {
@@ -0,0 +1,32 @@
+package com.sajoldev.habittracker.utils;
+
+/**
+ * StatsRange - Time ranges offered on the Statistics screen, each ending today
+ */
+public enum StatsRange {
+    DAYS_30("30 Days", 30),
+    DAYS_90("90 Days", 90),
+    YEAR("1 Year", 365),
+    ALL_TIME("All Time", 0);
+
+    private final String label;
+    private final int days;
+
+    StatsRange(String label, int days) {
+        this.label = label;
+        this.days = days;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * First day of the range
+     * @param firstDay Earliest day with any history, used by ALL_TIME
+     */
+    public int startDay(int today, int firstDay) {
+        if (days > 0) return today - days + 1;
+        return Math.min(firstDay, today);
+    }
+}
@@ -1,8 +1,11 @@
 package com.sajoldev.habittracker.utils;
 
+import com.sajoldev.habittracker.core.analytics.Streaks;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.StreakIndex;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
 import com.sajoldev.habittracker.data.HabitEntity;
 
-import java.util.Calendar;
 import java.util.Date;
 
 /**
@@ -13,6 +16,8 @@ import java.util.Date;
  * 
  * Current Streak: Number of consecutive days the habit was completed,
  * counting backwards from today (or the most recent completed day).
+ * Only days the habit is due count: a Mon/Wed/Fri habit completed on each of
+ * those days has an unbroken streak, whatever happens on the other days.
  * 
  * Example:
  * - Today: Jan 15 (completed) → Streak = 1
@@ -26,6 +31,9 @@ import java.util.Date;
  * 1. If today is not completed but yesterday was, streak = yesterday's streak
  * 2. If there's a gap in completion, streak resets to 0
  * 3. If today is completed, streak = 1 + yesterday's streak
+ *
+ * The rules themselves live in the core module (Streaks); this class applies them
+ * to Room entities as of the device's today.
  */
 public class StreakCalculator {
 
@@ -39,9 +47,10 @@ public class StreakCalculator {
         int currentStreak = calculateCurrentStreak(habit);
         habit.setCurrentStreak(currentStreak);
 
-        // Update longest streak if current streak is higher
-        if (currentStreak > habit.getLongestStreak()) {
-            habit.setLongestStreak(currentStreak);
+        // Update longest streak if any run in the history is longer
+        int longestRun = habit.getStreakIndex().longestStreak();
+        if (longestRun > habit.getLongestStreak()) {
+            habit.setLongestStreak(longestRun);
         }
     }
 
@@ -50,55 +59,49 @@ public class StreakCalculator {
      * going backwards from today
      * 
      * ALGORITHM:
-     * 1. Start from today
-     * 2. Check if date is in completedDates set
-     * 3. If yes, increment streak and check previous day
-     * 4. If no, stop counting (streak is broken)
-     * 5. Return total count
+     * 1. Binary search the habit's StreakIndex for the run containing today
+     * 2. If today is not completed yet (or not due), accept a run that ends on the previous due day
+     * 3. The streak is the length of that run up to today
      * 
      * @param habit The habit to check
-     * @return Number of consecutive days completed (0 if not completed today)
+     * @return Number of consecutive due days completed (0 if not completed today)
      */
     public static int calculateCurrentStreak(HabitEntity habit) {
-        if (habit.getCompletedDates() == null || habit.getCompletedDates().isEmpty()) {
-            return 0;
-        }
+        return calculateCurrentStreak(habit.getStreakIndex(), habit.getSchedule(), DateUtils.todayEpochDay());
+    }
 
-        int streak = 0;
-        Calendar cal = Calendar.getInstance();
-        
-        // Start from today and go backwards
-        // Note: We don't require today to be completed to maintain streak from yesterday
-        // This handles the case where user checks habits in the morning
-        
-        // First check if we should count today
-        String todayStr = DateUtils.getTodayString();
-        boolean countToday = habit.isCompletedOnDate(todayStr);
-        
-        if (countToday) {
-            streak = 1;
-            cal.add(Calendar.DAY_OF_YEAR, -1); // Move to yesterday
-        }
-        
-        // Count backwards from yesterday (or today if not completed)
-        while (true) {
-            String dateStr = DateUtils.dateToString(cal.getTime());
-            
-            if (habit.isCompletedOnDate(dateStr)) {
-                streak++;
-                cal.add(Calendar.DAY_OF_YEAR, -1); // Go to previous day
-            } else {
-                // Streak is broken
-                break;
-            }
-            
-            // Safety limit to prevent infinite loop
-            if (streak > 3650) { // 10 years max
-                break;
-            }
-        }
-        
-        return streak;
+    /**
+     * Calculate the current streak from a streak index
+     *
+     * @param index Runs of completed due days
+     * @param schedule The days the habit is due
+     * @param today Today's epoch day
+     * @return Number of consecutive due days completed up to today (or the previous due day)
+     */
+    public static int calculateCurrentStreak(StreakIndex index, WeekdaySchedule schedule, int today) {
+        return Streaks.currentStreak(index, schedule, today);
+    }
+
+    /**
+     * Calculate the current streak straight from a completion bitmap
+     *
+     * @param bitmap Completed days
+     * @param schedule The days the habit is due
+     * @param today Today's epoch day
+     * @return Number of consecutive due days completed up to today (or the previous due day)
+     */
+    public static int calculateCurrentStreak(CompletionBitmap bitmap, WeekdaySchedule schedule, int today) {
+        return Streaks.currentStreak(bitmap, schedule, today);
+    }
+
+    /**
+     * Length of the run of completed due days that contains the given day
+     * Only the words around the run are touched, however long the history is
+     *
+     * @return Run length, or 0 if the day is not due or not completed
+     */
+    public static int runLengthAround(CompletionBitmap bitmap, WeekdaySchedule schedule, int day) {
+        return Streaks.runLengthAround(bitmap, schedule, day);
     }
 
     /**
@@ -110,37 +113,24 @@ public class StreakCalculator {
      * @return Streak count up to the specified date
      */
     public static int calculateStreakUpToDate(HabitEntity habit, Date upToDate) {
-        if (habit.getCompletedDates() == null || habit.getCompletedDates().isEmpty()) {
-            return 0;
-        }
+        return Streaks.streakUpTo(habit, DateUtils.toEpochDay(upToDate));
+    }
 
-        int streak = 0;
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(upToDate);
-
-        while (true) {
-            String dateStr = DateUtils.dateToString(cal.getTime());
-            
-            if (habit.isCompletedOnDate(dateStr)) {
-                streak++;
-                cal.add(Calendar.DAY_OF_YEAR, -1);
-            } else {
-                break;
-            }
-            
-            if (streak > 3650) {
-                break;
-            }
-        }
-        
-        return streak;
+    /**
+     * Get the longest run of consecutive completed due days in a habit's history
+     * 
+     * @param habit The habit to check
+     * @return Length of the longest run (0 if never completed)
+     */
+    public static int calculateLongestStreak(HabitEntity habit) {
+        return Streaks.longestStreak(habit);
     }
 
     /**
      * Check if a habit should maintain its streak for today
      * A habit maintains streak if:
      * 1. Today is completed, OR
-     * 2. Today is not yet over AND yesterday was completed
+     * 2. Today is not yet over AND the previous due day was completed
      * 
      * This prevents streak loss if user hasn't checked the app yet today
      * 
@@ -148,44 +138,50 @@ public class StreakCalculator {
      * @return true if streak should be maintained
      */
     public static boolean shouldMaintainStreak(HabitEntity habit) {
-        String todayStr = DateUtils.getTodayString();
-        
-        // If completed today, definitely maintain
-        if (habit.isCompletedOnDate(todayStr)) {
-            return true;
-        }
-        
-        // Check if yesterday was completed (gives user grace period until end of today)
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, -1);
-        String yesterdayStr = DateUtils.dateToString(cal.getTime());
-        
-        return habit.isCompletedOnDate(yesterdayStr);
+        int today = DateUtils.todayEpochDay();
+        int previousDueDay = habit.getSchedule().previousScheduledDay(today - 1);
+
+        // If completed today, or the last due day (grace period until end of today)
+        return habit.isCompletedOnDay(today) || habit.isCompletedOnDay(previousDueDay);
+    }
+
+    /**
+     * Check if a habit is due today
+     * 
+     * @param habit The habit to check
+     * @return true if today is one of the habit's scheduled days
+     */
+    public static boolean isDueToday(HabitEntity habit) {
+        return habit.getSchedule().isScheduled(DateUtils.todayEpochDay());
     }
 
     /**
      * Get completion rate for the last N days
+     * Only days the habit was due count towards the rate
+     * Constant time for any N, from the habit's CompletionIndex
      * 
      * @param habit The habit to check
      * @param days Number of days to look back
-     * @return Percentage of days completed (0-100)
+     * @return Percentage of due days completed (0-100)
      */
     public static int getCompletionRate(HabitEntity habit, int days) {
-        if (habit.getCompletedDates() == null || days <= 0) {
+        if (days <= 0) {
             return 0;
         }
 
-        int completedDays = 0;
-        Calendar cal = Calendar.getInstance();
-        
-        for (int i = 0; i < days; i++) {
-            String dateStr = DateUtils.dateToString(cal.getTime());
-            if (habit.isCompletedOnDate(dateStr)) {
-                completedDays++;
-            }
-            cal.add(Calendar.DAY_OF_YEAR, -1);
-        }
-        
-        return (completedDays * 100) / days;
+        int today = DateUtils.todayEpochDay();
+        return getCompletionRateBetween(habit, today - days + 1, today);
+    }
+
+    /**
+     * Get completion rate for a range of days (inclusive)
+     * 
+     * @param habit The habit to check
+     * @param startDay First epoch day of the range
+     * @param endDay Last epoch day of the range
+     * @return Percentage of due days completed (0-100)
+     */
+    public static int getCompletionRateBetween(HabitEntity habit, int startDay, int endDay) {
+        return Streaks.completionRate(habit, startDay, endDay);
     }
 }
@@ -0,0 +1,265 @@
+package com.sajoldev.habittracker.view;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+import com.sajoldev.habittracker.data.DailyStat;
+
+import java.text.DateFormatSymbols;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HeatmapView - A year of completions as a grid of colored cells, one per day
+ * Columns are Monday-to-Sunday weeks, oldest on the left; darker cells mean more completions
+ *
+ * All cells are drawn once, in one pass, into an offscreen Bitmap; onDraw only copies
+ * that Bitmap, so scrolling past the view costs nothing extra. When new counts arrive
+ * for the same year, only the cells whose count changed are redrawn and invalidated.
+ */
+public class HeatmapView extends View {
+
+    public static final int WEEKS = 53;
+
+    private static final int LEVELS = 5;
+    private static final int EMPTY_COLOR = Color.parseColor("#EBEDF0");
+    private static final int DEFAULT_COLOR = Color.parseColor("#4CAF50");
+
+    private final Paint cellPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint clearPaint = new Paint();
+    private final RectF cellRect = new RectF();
+    private final Rect dirty = new Rect();
+    private final int[] levelColors = new int[LEVELS];
+    private final String[] monthNames = DateFormatSymbols.getInstance().getShortMonths();
+
+    private int baseColor;
+    private int endDay = Integer.MIN_VALUE;
+    private int[] counts = new int[0];
+    private int maxCount = 1;
+
+    private Bitmap cache;
+    private Canvas cacheCanvas;
+    private float cellSize;
+    private float gap;
+    private float labelHeight;
+
+    public HeatmapView(Context context) {
+        this(context, null);
+    }
+
+    public HeatmapView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public HeatmapView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        labelPaint.setColor(Color.parseColor("#757575"));
+        labelPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 10,
+                getResources().getDisplayMetrics()));
+        labelHeight = labelPaint.getTextSize() * 1.5f;
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+        setBaseColor(DEFAULT_COLOR);
+    }
+
+    /**
+     * First day shown when the grid ends on the given day: the Monday 52 weeks before its week
+     */
+    public static int firstDay(int endDay) {
+        return endDay - WeekdaySchedule.weekday(endDay) - (WEEKS - 1) * 7;
+    }
+
+    /**
+     * Set the color of the darkest cells; lighter levels are blended towards white
+     */
+    public void setBaseColor(int color) {
+        if (color == baseColor && levelColors[0] != 0) return;
+        baseColor = color;
+        levelColors[0] = EMPTY_COLOR;
+        for (int level = 1; level < LEVELS; level++) {
+            levelColors[level] = blendWithWhite(color, level / (float) (LEVELS - 1));
+        }
+        renderAll();
+    }
+
+    /**
+     * Show one habit: a cell is either completed or not
+     */
+    public void setCompletions(int endDay, CompletionBitmap bitmap) {
+        int first = firstDay(endDay);
+        int[] byDay = new int[endDay - first + 1];
+        for (int day = bitmap.nextSetDay(first); day != CompletionBitmap.NONE && day <= endDay;
+                day = bitmap.nextSetDay(day + 1)) {
+            byDay[day - first] = 1;
+        }
+        setCounts(endDay, byDay, 1);
+    }
+
+    /**
+     * Show all habits: shade by the number of completions per day, relative to the busiest day
+     */
+    public void setDailyStats(int endDay, List<DailyStat> stats) {
+        int first = firstDay(endDay);
+        int[] byDay = new int[endDay - first + 1];
+        int max = 1;
+        if (stats != null) {
+            for (DailyStat stat : stats) {
+                int i = stat.getEpochDay() - first;
+                if (i >= 0 && i < byDay.length) {
+                    byDay[i] = stat.getCompletedCount();
+                    max = Math.max(max, stat.getCompletedCount());
+                }
+            }
+        }
+        setCounts(endDay, byDay, max);
+    }
+
+    /**
+     * Set the count of every day from firstDay(endDay) to endDay
+     * If only some counts changed, only those cells are redrawn
+     */
+    public void setCounts(int endDay, int[] counts, int maxCount) {
+        boolean sameGrid = cache != null && endDay == this.endDay && maxCount == this.maxCount
+                && counts.length == this.counts.length;
+        int[] previous = this.counts;
+        this.endDay = endDay;
+        this.counts = Arrays.copyOf(counts, counts.length);
+        this.maxCount = Math.max(1, maxCount);
+
+        if (!sameGrid) {
+            renderAll();
+            return;
+        }
+        dirty.setEmpty();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != previous[i]) {
+                drawCell(i);
+                dirty.union((int) cellRect.left, (int) cellRect.top,
+                        (int) Math.ceil(cellRect.right), (int) Math.ceil(cellRect.bottom));
+            }
+        }
+        if (!dirty.isEmpty()) {
+            invalidate(dirty);
+        }
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        float cell = (width - getPaddingLeft() - getPaddingRight()) / (float) WEEKS;
+        int height = (int) Math.ceil(labelHeight + cell * 7) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (cache != null) {
+            cache.recycle();
+            cache = null;
+        }
+        if (w > 0 && h > 0) {
+            cache = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            cacheCanvas = new Canvas(cache);
+        }
+        cellSize = (w - getPaddingLeft() - getPaddingRight()) / (float) WEEKS;
+        gap = Math.max(1f, cellSize * 0.15f);
+        renderAll();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (cache != null) {
+            canvas.drawBitmap(cache, 0, 0, null);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (cache != null) {
+            cache.recycle();
+            cache = null;
+            cacheCanvas = null;
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (cache == null && getWidth() > 0 && getHeight() > 0) {
+            onSizeChanged(getWidth(), getHeight(), 0, 0);
+        }
+    }
+
+    /**
+     * Draw the whole grid and the month labels into the cache in one pass
+     */
+    private void renderAll() {
+        if (cache == null) return;
+        cache.eraseColor(Color.TRANSPARENT);
+
+        if (endDay != Integer.MIN_VALUE) {
+            int first = firstDay(endDay);
+            int lastLabelColumn = -3;
+            for (int column = 0; column < WEEKS; column++) {
+                // Label the first week that starts in a new month
+                LocalDate monday = LocalDate.ofEpochDay(first + column * 7L);
+                if (monday.getDayOfMonth() <= 7 && column - lastLabelColumn >= 3) {
+                    cacheCanvas.drawText(monthNames[monday.getMonthValue() - 1],
+                            getPaddingLeft() + column * cellSize, getPaddingTop() + labelPaint.getTextSize(), labelPaint);
+                    lastLabelColumn = column;
+                }
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            drawCell(i);
+        }
+        invalidate();
+    }
+
+    /**
+     * Draw the cell of the i-th day, leaving its bounds in cellRect
+     */
+    private void drawCell(int i) {
+        int column = i / 7;
+        int row = i % 7;
+        float left = getPaddingLeft() + column * cellSize;
+        float top = getPaddingTop() + labelHeight + row * cellSize;
+        cellRect.set(left, top, left + cellSize - gap, top + cellSize - gap);
+
+        // Clear first so antialiased corners don't blend with the cell's previous color
+        cacheCanvas.drawRect(cellRect, clearPaint);
+        cellPaint.setColor(levelColors[level(counts[i])]);
+        float radius = cellSize * 0.2f;
+        cacheCanvas.drawRoundRect(cellRect, radius, radius, cellPaint);
+    }
+
+    private int level(int count) {
+        if (count <= 0) return 0;
+        // 1 .. LEVELS - 1, with the busiest day darkest
+        return Math.min(LEVELS - 1, (count * (LEVELS - 1) + maxCount - 1) / maxCount);
+    }
+
+    private static int blendWithWhite(int color, float amount) {
+        int r = Math.round(255 + (Color.red(color) - 255) * amount);
+        int g = Math.round(255 + (Color.green(color) - 255) * amount);
+        int b = Math.round(255 + (Color.blue(color) - 255) * amount);
+        return Color.rgb(r, g, b);
+    }
+}
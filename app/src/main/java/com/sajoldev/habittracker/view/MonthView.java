@@ -0,0 +1,406 @@
+package com.sajoldev.habittracker.view;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+import com.sajoldev.habittracker.data.DailyStat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * MonthView - One month as a Sunday-to-Saturday grid of days, drawn on a Canvas
+ * The selected day is filled, today is ringed, and a dot shows whether all (green)
+ * or some (orange) of the habits that existed that day were completed
+ *
+ * Like HeatmapView, cells are drawn into an offscreen Bitmap and onDraw only copies it.
+ * Selecting a day redraws just the old and new cells; changing month redraws the grid
+ * in place, so the same view serves every month.
+ */
+public class MonthView extends View {
+
+    /**
+     * Receives taps on a day of the displayed month
+     */
+    public interface OnDayClickListener {
+        void onDayClick(int epochDay);
+    }
+
+    /**
+     * Receives horizontal swipes: +1 for the next month, -1 for the previous one
+     */
+    public interface OnMonthSwipeListener {
+        void onMonthSwipe(int delta);
+    }
+
+    private static final int COLUMNS = 7;
+    private static final int ROWS = 6;
+    private static final int NO_DAY = Integer.MIN_VALUE;
+
+    private static final int TEXT_COLOR = Color.parseColor("#212121");
+    private static final int SELECTED_COLOR = Color.parseColor("#2196F3");
+    private static final int TODAY_COLOR = Color.parseColor("#FF6D00");
+    private static final int ALL_DONE_COLOR = Color.parseColor("#4CAF50");
+    private static final int PARTIAL_COLOR = Color.parseColor("#FF9800");
+
+    private static final String[] DAY_LABELS = new String[31];
+
+    static {
+        for (int i = 0; i < DAY_LABELS.length; i++) {
+            DAY_LABELS[i] = String.valueOf(i + 1);
+        }
+    }
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint boldTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint circlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint ringPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint clearPaint = new Paint();
+    private final RectF cellRect = new RectF();
+    private final Rect dirty = new Rect();
+    private final GestureDetector gestureDetector;
+    private final float cellHeight;
+    private final float dotRadius;
+
+    private int monthStartDay = NO_DAY;
+    private int daysInMonth;
+    private int firstColumn;
+    private int today = NO_DAY;
+    private int selectedDay = NO_DAY;
+    // Completions and habits existing on each day of the month, indexed from 0
+    private int[] counts = new int[31];
+    private int[] totals = new int[31];
+
+    private Bitmap cache;
+    private Canvas cacheCanvas;
+    private float cellWidth;
+
+    private OnDayClickListener dayClickListener;
+    private OnMonthSwipeListener monthSwipeListener;
+
+    public MonthView(Context context) {
+        this(context, null);
+    }
+
+    public MonthView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MonthView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        cellHeight = dp(48);
+        dotRadius = dp(2.5f);
+
+        float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 16,
+                getResources().getDisplayMetrics());
+        textPaint.setTextSize(textSize);
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        boldTextPaint.setTextSize(textSize);
+        boldTextPaint.setTextAlign(Paint.Align.CENTER);
+        boldTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        circlePaint.setColor(SELECTED_COLOR);
+        ringPaint.setColor(TODAY_COLOR);
+        ringPaint.setStyle(Paint.Style.STROKE);
+        ringPaint.setStrokeWidth(dp(1.5f));
+        clearPaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.CLEAR));
+
+        gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                return true;
+            }
+
+            @Override
+            public boolean onSingleTapUp(MotionEvent e) {
+                int day = dayAt(e.getX(), e.getY());
+                if (day == NO_DAY) return false;
+                performClick();
+                if (dayClickListener != null) {
+                    dayClickListener.onDayClick(day);
+                }
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent down, MotionEvent up, float velocityX, float velocityY) {
+                float dx = up.getX() - down.getX();
+                if (monthSwipeListener == null || Math.abs(velocityX) <= Math.abs(velocityY)
+                        || Math.abs(dx) < cellWidth) {
+                    return false;
+                }
+                monthSwipeListener.onMonthSwipe(dx < 0 ? 1 : -1);
+                return true;
+            }
+        });
+    }
+
+    public void setOnDayClickListener(OnDayClickListener listener) {
+        this.dayClickListener = listener;
+    }
+
+    public void setOnMonthSwipeListener(OnMonthSwipeListener listener) {
+        this.monthSwipeListener = listener;
+    }
+
+    /**
+     * Show the month containing the given day; counts are cleared until new stats arrive
+     */
+    public void setMonth(int epochDay) {
+        LocalDate first = LocalDate.ofEpochDay(epochDay).withDayOfMonth(1);
+        int start = (int) first.toEpochDay();
+        if (start == monthStartDay) return;
+        monthStartDay = start;
+        daysInMonth = first.lengthOfMonth();
+        // Weekday 0 is Monday; the grid starts on Sunday
+        firstColumn = (WeekdaySchedule.weekday(start) + 1) % COLUMNS;
+        counts = new int[31];
+        renderAll();
+    }
+
+    public int getMonthStartDay() {
+        return monthStartDay;
+    }
+
+    /**
+     * Mark a day as selected, redrawing only the previously selected cell and the new one
+     */
+    public void setSelectedDay(int epochDay) {
+        if (epochDay == selectedDay) return;
+        int previous = selectedDay;
+        selectedDay = epochDay;
+        redrawDay(previous);
+        redrawDay(epochDay);
+    }
+
+    /**
+     * Ring today's cell; call again after midnight
+     */
+    public void setToday(int epochDay) {
+        if (epochDay == today) return;
+        int previous = today;
+        today = epochDay;
+        redrawDay(previous);
+        redrawDay(epochDay);
+    }
+
+    /**
+     * Set the completions per day; stats outside the displayed month are ignored
+     * A day is fully done when it completes every habit that was due on it
+     * Only cells whose dot changes are redrawn
+     */
+    public void setDailyStats(@Nullable List<DailyStat> stats) {
+        int[] byDay = new int[31];
+        int[] totalByDay = new int[31];
+        if (stats != null) {
+            for (DailyStat stat : stats) {
+                int i = stat.getEpochDay() - monthStartDay;
+                if (i >= 0 && i < daysInMonth) {
+                    byDay[i] = stat.getCompletedCount();
+                    totalByDay[i] = stat.getActiveHabitCount();
+                }
+            }
+        }
+        setCounts(byDay, totalByDay);
+    }
+
+    /**
+     * Set the completions and active habits per day of the displayed month,
+     * indexed from the first of the month
+     * Only cells whose dot changes are redrawn
+     */
+    public void setCompletedCounts(int monthStartDay, int[] completedCounts, int[] activeHabitCounts) {
+        if (monthStartDay != this.monthStartDay) return;
+        int[] byDay = new int[31];
+        int[] totalByDay = new int[31];
+        System.arraycopy(completedCounts, 0, byDay, 0, Math.min(completedCounts.length, daysInMonth));
+        System.arraycopy(activeHabitCounts, 0, totalByDay, 0, Math.min(activeHabitCounts.length, daysInMonth));
+        setCounts(byDay, totalByDay);
+    }
+
+    private void setCounts(int[] byDay, int[] totalByDay) {
+        int[] previousDots = dotColors();
+        counts = byDay;
+        totals = totalByDay;
+        redrawChangedDots(previousDots);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        int height = (int) Math.ceil(cellHeight * ROWS) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (cache != null) {
+            cache.recycle();
+            cache = null;
+        }
+        if (w > 0 && h > 0) {
+            cache = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            cacheCanvas = new Canvas(cache);
+        }
+        cellWidth = (w - getPaddingLeft() - getPaddingRight()) / (float) COLUMNS;
+        renderAll();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (cache != null) {
+            canvas.drawBitmap(cache, 0, 0, null);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (cache != null) {
+            cache.recycle();
+            cache = null;
+            cacheCanvas = null;
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (cache == null && getWidth() > 0 && getHeight() > 0) {
+            onSizeChanged(getWidth(), getHeight(), 0, 0);
+        }
+    }
+
+    /**
+     * Draw every cell of the month into the cache in one pass
+     */
+    private void renderAll() {
+        if (cache == null) return;
+        cache.eraseColor(Color.TRANSPARENT);
+        if (monthStartDay != NO_DAY) {
+            for (int i = 0; i < daysInMonth; i++) {
+                drawCell(i);
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Redraw one day's cell if it is in the displayed month
+     */
+    private void redrawDay(int epochDay) {
+        int i = epochDay - monthStartDay;
+        if (cache == null || epochDay == NO_DAY || monthStartDay == NO_DAY || i < 0 || i >= daysInMonth) {
+            return;
+        }
+        drawCell(i);
+        invalidateCell();
+    }
+
+    private void redrawChangedDots(int[] previousDots) {
+        if (cache == null || monthStartDay == NO_DAY) return;
+        for (int i = 0; i < daysInMonth; i++) {
+            if (dotColor(i) != previousDots[i]) {
+                drawCell(i);
+                invalidateCell();
+            }
+        }
+    }
+
+    /**
+     * Draw the cell of the i-th day of the month, leaving its bounds in cellRect
+     */
+    private void drawCell(int i) {
+        int position = firstColumn + i;
+        float left = getPaddingLeft() + (position % COLUMNS) * cellWidth;
+        float top = getPaddingTop() + (position / COLUMNS) * cellHeight;
+        cellRect.set(left, top, left + cellWidth, top + cellHeight);
+        cacheCanvas.drawRect(cellRect, clearPaint);
+
+        int day = monthStartDay + i;
+        float centerX = cellRect.centerX();
+        float centerY = top + cellHeight * 0.42f;
+        float radius = Math.min(cellWidth, cellHeight) * 0.4f;
+
+        Paint paint;
+        if (day == selectedDay) {
+            cacheCanvas.drawCircle(centerX, centerY, radius, circlePaint);
+            boldTextPaint.setColor(Color.WHITE);
+            paint = boldTextPaint;
+        } else if (day == today) {
+            cacheCanvas.drawCircle(centerX, centerY, radius, ringPaint);
+            boldTextPaint.setColor(TODAY_COLOR);
+            paint = boldTextPaint;
+        } else {
+            textPaint.setColor(TEXT_COLOR);
+            paint = textPaint;
+        }
+        cacheCanvas.drawText(DAY_LABELS[i], centerX, centerY - (paint.ascent() + paint.descent()) / 2, paint);
+
+        int dot = dotColor(i);
+        if (dot != Color.TRANSPARENT) {
+            dotPaint.setColor(dot);
+            cacheCanvas.drawCircle(centerX, top + cellHeight * 0.85f, dotRadius, dotPaint);
+        }
+    }
+
+    private void invalidateCell() {
+        dirty.set((int) cellRect.left, (int) cellRect.top,
+                (int) Math.ceil(cellRect.right), (int) Math.ceil(cellRect.bottom));
+        invalidate(dirty);
+    }
+
+    private int dotColor(int i) {
+        int completed = counts[i];
+        if (completed <= 0) return Color.TRANSPARENT;
+        return completed >= totals[i] ? ALL_DONE_COLOR : PARTIAL_COLOR;
+    }
+
+    private int[] dotColors() {
+        int[] colors = new int[31];
+        for (int i = 0; i < daysInMonth; i++) {
+            colors[i] = dotColor(i);
+        }
+        return colors;
+    }
+
+    private int dayAt(float x, float y) {
+        if (monthStartDay == NO_DAY || cellWidth <= 0) return NO_DAY;
+        int column = (int) ((x - getPaddingLeft()) / cellWidth);
+        int row = (int) ((y - getPaddingTop()) / cellHeight);
+        if (x < getPaddingLeft() || y < getPaddingTop() || column >= COLUMNS || row >= ROWS) return NO_DAY;
+        int i = row * COLUMNS + column - firstColumn;
+        return i >= 0 && i < daysInMonth ? monthStartDay + i : NO_DAY;
+    }
+
+    private float dp(float value) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics());
+    }
+}
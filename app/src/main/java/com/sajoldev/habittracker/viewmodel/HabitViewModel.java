@@ -1,18 +1,34 @@
 package com.sajoldev.habittracker.viewmodel;
 
 import android.app.Application;
-import android.os.AsyncTask;
 
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
+import com.sajoldev.habittracker.adapter.HabitRowModel;
+import com.sajoldev.habittracker.core.analytics.StatisticsSnapshot;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.data.CategoryCount;
+import com.sajoldev.habittracker.data.DailyStat;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
+import com.sajoldev.habittracker.data.DayCount;
+import com.sajoldev.habittracker.data.HabitCompletionCount;
 import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.data.HabitSummary;
+import com.sajoldev.habittracker.data.WeekdayCount;
+import com.sajoldev.habittracker.repository.DailyRollover;
 import com.sajoldev.habittracker.repository.HabitRepository;
+import com.sajoldev.habittracker.repository.HabitSideEffects;
+import com.sajoldev.habittracker.repository.MonthSummary;
+import com.sajoldev.habittracker.utils.ChartResolution;
+import com.sajoldev.habittracker.utils.CompletionSeries;
 import com.sajoldev.habittracker.utils.DateUtils;
-import com.sajoldev.habittracker.utils.StreakCalculator;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -26,12 +42,54 @@ public class HabitViewModel extends AndroidViewModel {
     private HabitRepository repository;
     private LiveData<List<HabitEntity>> allHabits;
     private MutableLiveData<Date> selectedDate;
+    private LiveData<List<HabitSummary>> habitSummaries;
+    private MediatorLiveData<List<HabitRowModel>> habitRows;
+    private MediatorLiveData<List<HabitRowModel>> dueHabitRows;
+    private HabitRowModel.Palette rowPalette;
+    private HabitSideEffects sideEffects;
+    // Summaries the latest rows are built from; rows built from an older list are dropped
+    private List<HabitSummary> rowsSource;
+    private MutableLiveData<int[]> statsRange;
+    private LiveData<List<DailyStat>> dailyStats;
+    private LiveData<String> historyVersion;
+    private MediatorLiveData<StatisticsSnapshot> statistics;
+    // {resolution ordinal, start day, end day} of the statistics charts
+    private MutableLiveData<int[]> chartRange;
+    private LiveData<CompletionSeries> completionSeries;
+    private LiveData<List<WeekdayCount>> weekdayTotals;
+    // History version and day of the last delivered snapshot and of the one being computed;
+    // null if none
+    private String statisticsKey;
+    private String pendingStatisticsKey;
 
     public HabitViewModel(@NonNull Application application) {
         super(application);
         repository = new HabitRepository(application);
         allHabits = repository.getAllHabits();
         selectedDate = new MutableLiveData<>(new Date());
+        habitSummaries = Transformations.switchMap(selectedDate,
+                date -> repository.getHabitSummaries(DateUtils.toEpochDay(date)));
+        rowPalette = HabitRowModel.Palette.of(application);
+        sideEffects = HabitSideEffects.getInstance(application);
+        habitRows = new MediatorLiveData<>();
+        dueHabitRows = new MediatorLiveData<>();
+        // Whichever is observed triggers the build; both lists come from the same task
+        habitRows.addSource(habitSummaries, this::buildRows);
+        dueHabitRows.addSource(habitSummaries, this::buildRows);
+        statsRange = new MutableLiveData<>();
+        dailyStats = Transformations.switchMap(statsRange,
+                range -> repository.getDailyStats(range[0], range[1]));
+        historyVersion = repository.observeHistoryVersion();
+        statistics = new MediatorLiveData<>();
+        statistics.addSource(historyVersion, this::refreshStatistics);
+        chartRange = new MutableLiveData<>();
+        completionSeries = Transformations.switchMap(chartRange, range -> {
+            ChartResolution resolution = ChartResolution.values()[range[0]];
+            return Transformations.map(repository.getCompletionTotals(resolution, range[1], range[2]),
+                    rows -> CompletionSeries.of(rows, resolution, range[1], range[2]));
+        });
+        weekdayTotals = Transformations.switchMap(chartRange,
+                range -> repository.getCompletionsPerWeekday(range[1], range[2]));
     }
 
     /**
@@ -41,6 +99,195 @@ public class HabitViewModel extends AndroidViewModel {
         return allHabits;
     }
 
+    /**
+     * Get habit summaries for list screens, with completion state for the selected date
+     * Re-queries whenever the selected date changes
+     */
+    public LiveData<List<HabitSummary>> getHabitSummaries() {
+        return habitSummaries;
+    }
+
+    /**
+     * Get ready-to-bind rows of every habit for the selected date, built in the background
+     */
+    public LiveData<List<HabitRowModel>> getHabitRows() {
+        return habitRows;
+    }
+
+    /**
+     * Get ready-to-bind rows of the habits due on the selected date, built in the background
+     */
+    public LiveData<List<HabitRowModel>> getDueHabitRows() {
+        return dueHabitRows;
+    }
+
+    private void buildRows(List<HabitSummary> summaries) {
+        if (summaries == null || summaries == rowsSource) return;
+        rowsSource = summaries;
+        int selectedDay = DateUtils.toEpochDay(selectedDate.getValue());
+        int today = DateUtils.todayEpochDay();
+        // Achievements and widgets follow the same list, debounced and off the main thread
+        sideEffects.onHabitsChanged(summaries, selectedDay);
+        DatabaseExecutors executors = DatabaseExecutors.getInstance();
+        executors.read().execute(() -> {
+            List<HabitRowModel> rows = HabitRowModel.of(summaries, selectedDay, today, false, rowPalette);
+            List<HabitRowModel> dueRows = HabitRowModel.of(summaries, selectedDay, today, true, rowPalette);
+            executors.main(() -> {
+                // A newer list may have arrived while these were built
+                if (summaries != rowsSource) return;
+                habitRows.setValue(rows);
+                dueHabitRows.setValue(dueRows);
+            });
+        });
+    }
+
+    /**
+     * Get the overall statistics, computed in the background and cached here
+     * Reopening a screen reads the cached snapshot; a new one is computed only when
+     * completions or streaks change, or the day rolls over
+     */
+    public LiveData<StatisticsSnapshot> getStatistics() {
+        return statistics;
+    }
+
+    private void refreshStatistics(String version) {
+        if (version == null) return;
+        int today = DateUtils.todayEpochDay();
+        String key = version + "@" + today;
+        if (pendingStatisticsKey != null) {
+            if (pendingStatisticsKey.equals(key)) return;
+        } else if (key.equals(statisticsKey)) {
+            return;
+        }
+        pendingStatisticsKey = key;
+
+        // The histories are loaded on the read lane too; only the version string is read here
+        repository.computeStatistics(today, new DatabaseExecutors.Callback<StatisticsSnapshot>() {
+            @Override
+            public void onResult(StatisticsSnapshot snapshot) {
+                // A newer version may have arrived while this one was computed
+                if (!key.equals(pendingStatisticsKey)) return;
+                pendingStatisticsKey = null;
+                statisticsKey = key;
+                statistics.setValue(snapshot);
+            }
+
+            @Override
+            public void onError(Exception error) {
+                DatabaseExecutors.Callback.super.onError(error);
+                // Nothing was delivered, so the next emission of this version computes again
+                if (key.equals(pendingStatisticsKey)) {
+                    pendingStatisticsKey = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Load one habit's completed days in the background
+     * @param callback Receives the bitmap on the main thread
+     */
+    public void getCompletionBitmap(int habitId, DatabaseExecutors.Callback<CompletionBitmap> callback) {
+        repository.getCompletionBitmap(habitId, callback);
+    }
+
+    /**
+     * Set the range and resolution of getCompletionSeries and getWeekdayTotals
+     * Setting the range already shown does not query again
+     */
+    public void setChartRange(ChartResolution resolution, int startDay, int endDay) {
+        int[] range = {resolution.ordinal(), startDay, endDay};
+        if (!Arrays.equals(range, chartRange.getValue())) {
+            chartRange.setValue(range);
+        }
+    }
+
+    /**
+     * Get completions across all habits per chart point, read from the rollup table
+     * of the resolution set with setChartRange
+     */
+    public LiveData<CompletionSeries> getCompletionSeries() {
+        return completionSeries;
+    }
+
+    /**
+     * Get completions per day of the week over the range set with setChartRange
+     */
+    public LiveData<List<WeekdayCount>> getWeekdayTotals() {
+        return weekdayTotals;
+    }
+
+    /**
+     * Get per-day stats for the range set with setDailyStatsRange
+     */
+    public LiveData<List<DailyStat>> getDailyStats() {
+        return dailyStats;
+    }
+
+    /**
+     * Set the day range (inclusive) that getDailyStats covers
+     */
+    public void setDailyStatsRange(int startDay, int endDay) {
+        statsRange.setValue(new int[]{startDay, endDay});
+    }
+
+    /**
+     * Get the cached summary of a calendar month, or null if it is not loaded yet
+     */
+    public MonthSummary getMonthSummary(int monthStartDay) {
+        return repository.getMonthSummary(monthStartDay);
+    }
+
+    /**
+     * Load a calendar month and the months within radius of it in the background
+     */
+    public void prefetchMonths(int monthStartDay, int radius) {
+        repository.prefetchMonths(monthStartDay, radius);
+    }
+
+    /**
+     * Get per-day stats for a fixed range (inclusive)
+     * For screens whose range does not change while they are shown
+     */
+    public LiveData<List<DailyStat>> getDailyStats(int startDay, int endDay) {
+        return repository.getDailyStats(startDay, endDay);
+    }
+
+    /**
+     * Get completions per day within a range (inclusive), counted in SQL
+     */
+    public LiveData<List<DayCount>> getCompletionsPerDay(int startDay, int endDay) {
+        return repository.getCompletionsPerDay(startDay, endDay);
+    }
+
+    /**
+     * Get one habit's completions per day within a range (inclusive)
+     */
+    public LiveData<List<DayCount>> getCompletionsPerDay(int habitId, int startDay, int endDay) {
+        return repository.getCompletionsPerDay(habitId, startDay, endDay);
+    }
+
+    /**
+     * Get completions per day of the week within a range (inclusive), Monday first
+     */
+    public LiveData<List<WeekdayCount>> getCompletionsPerWeekday(int startDay, int endDay) {
+        return repository.getCompletionsPerWeekday(startDay, endDay);
+    }
+
+    /**
+     * Get habits and completions per category within a range (inclusive)
+     */
+    public LiveData<List<CategoryCount>> getCategoryCounts(int startDay, int endDay) {
+        return repository.getCategoryCounts(startDay, endDay);
+    }
+
+    /**
+     * Get each habit's completions within a range (inclusive)
+     */
+    public LiveData<List<HabitCompletionCount>> getHabitCompletionCounts(int startDay, int endDay) {
+        return repository.getHabitCompletionCounts(startDay, endDay);
+    }
+
     /**
      * Insert a new habit
      */
@@ -48,6 +295,13 @@ public class HabitViewModel extends AndroidViewModel {
         repository.insert(habit);
     }
 
+    /**
+     * Insert a new habit and receive its generated ID on the main thread
+     */
+    public void insert(HabitEntity habit, DatabaseExecutors.Callback<Integer> callback) {
+        repository.insert(habit, callback);
+    }
+
     /**
      * Update an existing habit
      */
@@ -70,31 +324,15 @@ public class HabitViewModel extends AndroidViewModel {
     }
 
     /**
-     * Toggle habit completion status for a specific date
-     * This is the main method for checking/unchecking habits
-     * 
-     * STREAK LOGIC EXPLANATION:
-     * 1. When user checks a habit, we add the date to completedDates set
-     * 2. We recalculate the current streak by counting consecutive days backwards from today
-     * 3. If today is completed, streak = 1 + yesterday's streak (if yesterday was completed)
-     * 4. We also update longestStreak if current streak exceeds it
-     * 
-     * @param habit The habit to toggle
-     * @param dateStr Date in "yyyy-MM-dd" format
+     * Toggle habit completion status for a specific day
+     * This is the main method for checking/unchecking habits; toggles are batched and
+     * streaks are updated incrementally off the main thread
+     * @param habitId ID of the habit to toggle
+     * @param epochDay Day number since 1970-01-01
      * @param isCompleted New completion status
      */
-    public void toggleHabitCompletion(HabitEntity habit, String dateStr, boolean isCompleted) {
-        if (isCompleted) {
-            habit.markCompletedOnDate(dateStr);
-        } else {
-            habit.unmarkCompletedOnDate(dateStr);
-        }
-
-        // Recalculate streaks using StreakCalculator utility
-        StreakCalculator.calculateStreaks(habit);
-
-        // Update the habit in database
-        repository.update(habit);
+    public void toggleHabitCompletion(int habitId, int epochDay, boolean isCompleted) {
+        repository.setCompletion(habitId, epochDay, isCompleted);
     }
 
     /**
@@ -112,52 +350,30 @@ public class HabitViewModel extends AndroidViewModel {
     }
 
     /**
-     * Check and reset daily habits at midnight
-     * Called when app opens to reset isCheckedToday flag
-     * Runs on background thread to avoid blocking UI
-     * 
+     * Catch up on the midnight rollover when the app opens
+     * The scheduled alarm normally runs it; this only does work if today's run was missed
+     *
      * MIDNIGHT RESET LOGIC:
-     * 1. Compare lastCheckedDate with today's date
-     * 2. If dates are different, reset isCheckedToday to false
+     * 1. Compare the day of the last rollover with today's date
+     * 2. If they differ, reset isCheckedToday and recalculate broken streaks in one transaction
      * 3. This ensures a fresh start each day while preserving streak history
      */
     public void checkAndResetDailyHabits() {
-        new CheckAndResetAsyncTask(repository).execute();
+        DailyRollover.runIfNeeded(getApplication());
     }
 
-    /**
-     * AsyncTask to check and reset habits on background thread
-     */
-    private static class CheckAndResetAsyncTask extends AsyncTask<Void, Void, Void> {
-        private HabitRepository repository;
-
-        CheckAndResetAsyncTask(HabitRepository repository) {
-            this.repository = repository;
-        }
-
-        @Override
-        protected Void doInBackground(Void... voids) {
-            List<HabitEntity> habits = repository.getAllHabitsSync();
-            String todayStr = DateUtils.getTodayString();
-
-            for (HabitEntity habit : habits) {
-                String lastCheckedStr = DateUtils.dateToString(habit.getLastCheckedDate());
-
-                // If last checked date is not today, reset the daily check
-                if (!todayStr.equals(lastCheckedStr)) {
-                    habit.setCheckedToday(false);
-                    habit.setLastCheckedDate(new Date());
-                    repository.update(habit);
-                }
-            }
-            return null;
-        }
+    @Override
+    protected void onCleared() {
+        // Don't leave queued check-ins waiting on a screen that is going away
+        repository.flushPendingWrites();
+        super.onCleared();
     }
 
     /**
      * Get habit count for statistics
+     * @param callback Receives the count on the main thread
      */
-    public int getHabitCount() {
-        return repository.getHabitCount();
+    public void getHabitCount(DatabaseExecutors.Callback<Integer> callback) {
+        repository.getHabitCount(callback);
     }
 }
@@ -10,23 +10,63 @@ import android.widget.RemoteViews;
 
 import com.sajoldev.habittracker.MainActivity;
 import com.sajoldev.habittracker.R;
+import com.sajoldev.habittracker.data.DatabaseExecutors;
 import com.sajoldev.habittracker.data.HabitDao;
 import com.sajoldev.habittracker.data.HabitDatabase;
-import com.sajoldev.habittracker.data.HabitEntity;
+import com.sajoldev.habittracker.data.HabitSummary;
 import com.sajoldev.habittracker.utils.DateUtils;
 
 import java.util.List;
+import java.util.Objects;
 
 public class HabitWidgetProvider extends AppWidgetProvider {
 
+    private static final int MAX_LISTED = 5;
+
     @Override
     public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
+        updateWidgets(context.getApplicationContext(), appWidgetManager, appWidgetIds, null);
+    }
+
+    /**
+     * Load today's summaries on the read lane, then refresh every given widget
+     * @param pendingResult Finished once the widgets are updated, may be null
+     */
+    private static void updateWidgets(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds,
+                                      PendingResult pendingResult) {
+        DatabaseExecutors.getInstance().read().execute(() -> {
+            try {
+                HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
+                List<HabitSummary> habits = habitDao.getHabitSummariesSync(DateUtils.todayEpochDay());
+                for (int appWidgetId : appWidgetIds) {
+                    updateAppWidget(context, appWidgetManager, appWidgetId, habits);
+                }
+            } finally {
+                if (pendingResult != null) {
+                    pendingResult.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Hash of everything updateAppWidget shows: the day, the habit count and the first habits
+     * Equal signatures render the same widget
+     */
+    public static long signatureOf(List<HabitSummary> habits, int epochDay) {
+        long hash = epochDay;
+        hash = 31 * hash + habits.size();
+        for (int i = 0; i < habits.size() && i < MAX_LISTED; i++) {
+            HabitSummary habit = habits.get(i);
+            hash = 31 * hash + habit.getId();
+            hash = 31 * hash + Objects.hashCode(habit.getName());
+            hash = 31 * hash + (habit.isCompleted() ? 1 : 0);
         }
+        return hash;
     }
 
-    static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId) {
+    static void updateAppWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId,
+                                List<HabitSummary> habits) {
         RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.habit_widget);
 
         // Set up click to open app
@@ -35,18 +75,14 @@ public class HabitWidgetProvider extends AppWidgetProvider {
             PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
         views.setOnClickPendingIntent(R.id.widget_container, pendingIntent);
 
-        // Get today's habits
-        HabitDao habitDao = HabitDatabase.getInstance(context).habitDao();
-        List<HabitEntity> habits = habitDao.getAllHabitsSync();
-        String today = DateUtils.getTodayString();
-
+        // Today's habits
         int totalHabits = habits.size();
         int completedHabits = 0;
         StringBuilder habitList = new StringBuilder();
 
-        for (int i = 0; i < habits.size() && i < 5; i++) {
-            HabitEntity habit = habits.get(i);
-            boolean isCompleted = habit.isCompletedOnDate(today);
+        for (int i = 0; i < habits.size() && i < MAX_LISTED; i++) {
+            HabitSummary habit = habits.get(i);
+            boolean isCompleted = habit.isCompleted();
             if (isCompleted) completedHabits++;
 
             habitList.append(isCompleted ? "✓ " : "○ ")
@@ -54,8 +90,8 @@ public class HabitWidgetProvider extends AppWidgetProvider {
                     .append("\n");
         }
 
-        if (habits.size() > 5) {
-            habitList.append("... and ").append(habits.size() - 5).append(" more");
+        if (habits.size() > MAX_LISTED) {
+            habitList.append("... and ").append(habits.size() - MAX_LISTED).append(" more");
         }
 
         // Update widget views
@@ -78,7 +114,7 @@ public class HabitWidgetProvider extends AppWidgetProvider {
             AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
             ComponentName thisWidget = new ComponentName(context, HabitWidgetProvider.class);
             int[] appWidgetIds = appWidgetManager.getAppWidgetIds(thisWidget);
-            onUpdate(context, appWidgetManager, appWidgetIds);
+            updateWidgets(context.getApplicationContext(), appWidgetManager, appWidgetIds, goAsync());
         }
     }
 
@@ -86,9 +122,18 @@ public class HabitWidgetProvider extends AppWidgetProvider {
         AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
         ComponentName thisWidget = new ComponentName(context, HabitWidgetProvider.class);
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(thisWidget);
-        
-        for (int appWidgetId : appWidgetIds) {
-            updateAppWidget(context, appWidgetManager, appWidgetId);
+        updateWidgets(context.getApplicationContext(), appWidgetManager, appWidgetIds, null);
+    }
+
+    /**
+     * Refresh every widget from today's summaries, already loaded
+     * Call on a background thread
+     */
+    public static void updateAllWidgets(Context context, List<HabitSummary> todaysHabits) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        ComponentName thisWidget = new ComponentName(context, HabitWidgetProvider.class);
+        for (int appWidgetId : appWidgetManager.getAppWidgetIds(thisWidget)) {
+            updateAppWidget(context, appWidgetManager, appWidgetId, todaysHabits);
         }
     }
 }
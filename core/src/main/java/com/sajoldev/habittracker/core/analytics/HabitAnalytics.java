@@ -0,0 +1,111 @@
+package com.sajoldev.habittracker.core.analytics;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitHistory;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * HabitAnalytics - Analytics over many habits at once, spread across cores
+ *
+ * Per-habit results use parallel streams; totals across habits split the list with
+ * fork-join and add up the partial results. Each habit is handled by one thread per
+ * call, so its lazily built indexes are never built twice at once.
+ */
+public final class HabitAnalytics {
+
+    // Habits per fork-join leaf; below this, splitting costs more than it saves
+    private static final int LEAF_SIZE = 32;
+
+    private HabitAnalytics() {
+    }
+
+    /**
+     * Completions per day across all habits, for days [startDay, endDay]
+     * @return counts, where counts[i] is the total for startDay + i
+     */
+    public static int[] completionsPerDay(List<? extends HabitHistory> habits, int startDay, int endDay) {
+        if (endDay < startDay) return new int[0];
+        return ForkJoinPool.commonPool().invoke(new DayTotalsTask(habits, 0, habits.size(), startDay, endDay));
+    }
+
+    /**
+     * Current streak of each habit as of today, in list order
+     */
+    public static int[] currentStreaks(List<? extends HabitHistory> habits, int today) {
+        return IntStream.range(0, habits.size()).parallel()
+                .map(i -> Streaks.currentStreak(habits.get(i), today))
+                .toArray();
+    }
+
+    /**
+     * Longest streak in each habit's history, in list order
+     */
+    public static int[] longestStreaks(List<? extends HabitHistory> habits) {
+        return IntStream.range(0, habits.size()).parallel()
+                .map(i -> Streaks.longestStreak(habits.get(i)))
+                .toArray();
+    }
+
+    /**
+     * Completion rate (0-100) of each habit over a range (inclusive), in list order
+     */
+    public static int[] completionRates(List<? extends HabitHistory> habits, int startDay, int endDay) {
+        return IntStream.range(0, habits.size()).parallel()
+                .map(i -> Streaks.completionRate(habits.get(i), startDay, endDay))
+                .toArray();
+    }
+
+    /**
+     * Overall statistics across all habits as of today
+     */
+    public static StatisticsSnapshot snapshot(List<? extends HabitHistory> habits, int today) {
+        return StatisticsSnapshot.compute(habits, today);
+    }
+
+    private static final class DayTotalsTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends HabitHistory> habits;
+        private final int from;
+        private final int to;
+        private final int startDay;
+        private final int endDay;
+
+        DayTotalsTask(List<? extends HabitHistory> habits, int from, int to, int startDay, int endDay) {
+            this.habits = habits;
+            this.from = from;
+            this.to = to;
+            this.startDay = startDay;
+            this.endDay = endDay;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= LEAF_SIZE) {
+                int[] counts = new int[endDay - startDay + 1];
+                for (int i = from; i < to; i++) {
+                    CompletionBitmap bitmap = habits.get(i).getCompletionBitmap();
+                    for (int day = bitmap.nextSetDay(startDay); day != CompletionBitmap.NONE && day <= endDay;
+                            day = bitmap.nextSetDay(day + 1)) {
+                        counts[day - startDay]++;
+                    }
+                }
+                return counts;
+            }
+            int mid = (from + to) >>> 1;
+            DayTotalsTask left = new DayTotalsTask(habits, from, mid, startDay, endDay);
+            left.fork();
+            int[] counts = new DayTotalsTask(habits, mid, to, startDay, endDay).compute();
+            int[] leftCounts = left.join();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += leftCounts[i];
+            }
+            return counts;
+        }
+    }
+}
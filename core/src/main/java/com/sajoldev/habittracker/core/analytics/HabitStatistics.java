@@ -0,0 +1,79 @@
+package com.sajoldev.habittracker.core.analytics;
+
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitHistory;
+
+/**
+ * HabitStatistics - Completion counts and rates over time windows
+ * 
+ * Every method is answered from the habit's CompletionIndex prefix sums, so a 7-day
+ * window and the whole history cost the same. Windows end today and include it.
+ */
+public class HabitStatistics {
+
+    public static final int WEEK = 7;
+    public static final int MONTH = 30;
+    public static final int QUARTER = 90;
+    public static final int YEAR = 365;
+
+    /**
+     * Number of days the habit was completed within a range (inclusive)
+     */
+    public static int getCompletions(HabitHistory habit, int startDay, int endDay) {
+        return habit.getCompletionIndex().countBetween(startDay, endDay);
+    }
+
+    /**
+     * Number of days the habit was completed in the last N days
+     */
+    public static int getRecentCompletions(HabitHistory habit, int days) {
+        int today = DateKeys.today();
+        return getCompletions(habit, today - days + 1, today);
+    }
+
+    /**
+     * Number of days the habit was completed in the last 7 days
+     */
+    public static int getWeeklyCompletions(HabitHistory habit) {
+        return getRecentCompletions(habit, WEEK);
+    }
+
+    /**
+     * Percentage of due days completed in the last N days (0-100)
+     */
+    public static int getCompletionRate(HabitHistory habit, int days) {
+        if (days <= 0) {
+            return 0;
+        }
+        int today = DateKeys.today();
+        return Streaks.completionRate(habit, today - days + 1, today);
+    }
+
+    /**
+     * Percentage of due days completed since the habit was created (0-100)
+     */
+    public static int getAllTimeCompletionRate(HabitHistory habit) {
+        int today = DateKeys.today();
+        int startDay = habit.getCreatedDay() != DateKeys.INVALID ? habit.getCreatedDay() : today;
+        // Completions recorded before the creation date (e.g. imported) still count
+        int firstCompleted = habit.getCompletionBitmap().nextSetDay(Integer.MIN_VALUE + 1);
+        if (firstCompleted != CompletionBitmap.NONE && firstCompleted < startDay) {
+            startDay = firstCompleted;
+        }
+        return Streaks.completionRate(habit, Math.min(startDay, today), today);
+    }
+
+    /**
+     * Completion rates for the last week, month, quarter and year, then all time
+     */
+    public static int[] getCompletionRates(HabitHistory habit) {
+        return new int[]{
+                getCompletionRate(habit, WEEK),
+                getCompletionRate(habit, MONTH),
+                getCompletionRate(habit, QUARTER),
+                getCompletionRate(habit, YEAR),
+                getAllTimeCompletionRate(habit)
+        };
+    }
+}
@@ -0,0 +1,139 @@
+package com.sajoldev.habittracker.core.analytics;
+
+import com.sajoldev.habittracker.core.date.DateKeys;
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitHistory;
+
+import java.util.List;
+
+/**
+ * StatisticsSnapshot - The overall numbers shown on the Statistics screen, as of one day
+ *
+ * Computed off the main thread in a single pass over the habits, split across cores
+ * for large lists, and never modified afterwards, so it can be cached and handed to any screen. Each snapshot carries the
+ * signature of its inputs; a new one is only needed when the signature changes.
+ */
+public final class StatisticsSnapshot {
+
+    private final long signature;
+    private final int today;
+    private final int totalHabits;
+    private final int completedToday;
+    private final int bestStreak;
+    private final int successRate;
+    private final int weeklyAverage;
+    private final int firstHistoryDay;
+
+    private StatisticsSnapshot(long signature, int today, int totalHabits, int completedToday, int bestStreak,
+                               int successRate, int weeklyAverage, int firstHistoryDay) {
+        this.signature = signature;
+        this.today = today;
+        this.totalHabits = totalHabits;
+        this.completedToday = completedToday;
+        this.bestStreak = bestStreak;
+        this.successRate = successRate;
+        this.weeklyAverage = weeklyAverage;
+        this.firstHistoryDay = firstHistoryDay;
+    }
+
+    /**
+     * Signature of everything a snapshot is derived from: completions, streaks,
+     * creation dates and the current day. Names, categories and reminders are left out.
+     */
+    public static long signatureOf(List<? extends HabitHistory> habits, int today) {
+        long hash = today;
+        for (HabitHistory habit : habits) {
+            hash = 31 * hash + habit.getId();
+            hash = 31 * hash + habit.getCompletionBitmap().hashCode();
+            hash = 31 * hash + habit.getCurrentStreak();
+            hash = 31 * hash + createdDay(habit, today);
+        }
+        return hash;
+    }
+
+    /**
+     * Compute every statistic in one pass over the habits
+     * Call on a background thread
+     */
+    public static StatisticsSnapshot compute(List<? extends HabitHistory> habits, int today) {
+        Totals totals = habits.parallelStream().collect(
+                () -> new Totals(today), Totals::add, Totals::merge);
+
+        int size = habits.size();
+        return new StatisticsSnapshot(signatureOf(habits, today), today, size, totals.completedToday,
+                totals.bestStreak,
+                totals.totalPossible > 0 ? (int) (totals.totalCompletions * 100 / totals.totalPossible) : 0,
+                size > 0 ? (int) (totals.weeklyTotal / size) : 0,
+                totals.firstHistoryDay);
+    }
+
+    private static int createdDay(HabitHistory habit, int today) {
+        int createdDay = habit.getCreatedDay();
+        return createdDay != DateKeys.INVALID ? createdDay : today;
+    }
+
+    /**
+     * Running totals over part of the habit list; partial totals are merged at the end
+     */
+    private static final class Totals {
+        private final int today;
+        private int completedToday;
+        private int bestStreak;
+        private long totalCompletions;
+        private long totalPossible;
+        private long weeklyTotal;
+        private int firstHistoryDay;
+
+        Totals(int today) {
+            this.today = today;
+            this.firstHistoryDay = today;
+        }
+
+        void add(HabitHistory habit) {
+            if (habit.getCompletionBitmap().contains(today)) {
+                completedToday++;
+            }
+            bestStreak = Math.max(bestStreak, habit.getCurrentStreak());
+
+            totalCompletions += habit.getCompletionBitmap().cardinality();
+            totalPossible += Math.max(1, today - createdDay(habit, today));
+            weeklyTotal += habit.getCompletionIndex().countBetween(today - HabitStatistics.WEEK + 1, today);
+
+            firstHistoryDay = Math.min(firstHistoryDay, createdDay(habit, today));
+            int firstCompleted = habit.getCompletionBitmap().nextSetDay(Integer.MIN_VALUE + 1);
+            if (firstCompleted != CompletionBitmap.NONE) {
+                firstHistoryDay = Math.min(firstHistoryDay, firstCompleted);
+            }
+        }
+
+        void merge(Totals other) {
+            completedToday += other.completedToday;
+            bestStreak = Math.max(bestStreak, other.bestStreak);
+            totalCompletions += other.totalCompletions;
+            totalPossible += other.totalPossible;
+            weeklyTotal += other.weeklyTotal;
+            firstHistoryDay = Math.min(firstHistoryDay, other.firstHistoryDay);
+        }
+    }
+
+    public long getSignature() { return signature; }
+
+    /** Day the snapshot was computed for */
+    public int getToday() { return today; }
+
+    public int getTotalHabits() { return totalHabits; }
+
+    public int getCompletedToday() { return completedToday; }
+
+    /** Highest current streak of any habit */
+    public int getBestStreak() { return bestStreak; }
+
+    /** Completed days as a percentage of days since each habit was created (0-100) */
+    public int getSuccessRate() { return successRate; }
+
+    /** Average completions per habit over the last 7 days */
+    public int getWeeklyAverage() { return weeklyAverage; }
+
+    /** Earliest creation or completion day of any habit, or the snapshot's day if there is none */
+    public int getFirstHistoryDay() { return firstHistoryDay; }
+}
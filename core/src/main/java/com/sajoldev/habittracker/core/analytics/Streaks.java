@@ -0,0 +1,91 @@
+package com.sajoldev.habittracker.core.analytics;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitHistory;
+import com.sajoldev.habittracker.core.model.StreakIndex;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+/**
+ * Streaks - Streak and rate rules, as pure functions of a habit's history and a day
+ *
+ * A streak is a run of consecutive due days that were completed; days the habit is not
+ * due neither break nor extend it. Today still counts as open, so a streak that ended on
+ * the previous due day is current until today is over.
+ */
+public final class Streaks {
+
+    private Streaks() {
+    }
+
+    /**
+     * Current streak from a streak index
+     * @return Number of consecutive due days completed up to today (or the previous due day)
+     */
+    public static int currentStreak(StreakIndex index, WeekdaySchedule schedule, int today) {
+        if (schedule.isScheduled(today)) {
+            return index.currentStreak(schedule.ordinal(today));
+        }
+        // Not due today: the streak is whatever ended on the last due day
+        return index.streakEndingAt(schedule.ordinal(today) - 1);
+    }
+
+    /**
+     * Current streak straight from a completion bitmap, touching only the words of the last run
+     * @return Number of consecutive due days completed up to today (or the previous due day)
+     */
+    public static int currentStreak(CompletionBitmap bitmap, WeekdaySchedule schedule, int today) {
+        if (bitmap.isEmpty()) {
+            return 0;
+        }
+        int day = schedule.isScheduled(today) && bitmap.contains(today)
+                ? today : schedule.previousScheduledDay(today - 1);
+        return schedule.countScheduled(bitmap.previousClearDay(day, schedule) + 1, day);
+    }
+
+    /**
+     * Current streak of a habit as of today
+     */
+    public static int currentStreak(HabitHistory habit, int today) {
+        return currentStreak(habit.getStreakIndex(), habit.getSchedule(), today);
+    }
+
+    /**
+     * Streak as of a past day: consecutive completed due days ending on it,
+     * or on the due day before it if the habit was not due that day
+     */
+    public static int streakUpTo(HabitHistory habit, int day) {
+        WeekdaySchedule schedule = habit.getSchedule();
+        int ordinal = schedule.isScheduled(day) ? schedule.ordinal(day) : schedule.ordinal(day) - 1;
+        return habit.getStreakIndex().streakEndingAt(ordinal);
+    }
+
+    /**
+     * Longest run of completed due days in a habit's history
+     */
+    public static int longestStreak(HabitHistory habit) {
+        return habit.getStreakIndex().longestStreak();
+    }
+
+    /**
+     * Length of the run of completed due days that contains the given day
+     * @return Run length, or 0 if the day is not due or not completed
+     */
+    public static int runLengthAround(CompletionBitmap bitmap, WeekdaySchedule schedule, int day) {
+        if (!schedule.isScheduled(day) || !bitmap.contains(day)) {
+            return 0;
+        }
+        return schedule.countScheduled(bitmap.previousClearDay(day, schedule) + 1,
+                bitmap.nextClearDay(day, schedule) - 1);
+    }
+
+    /**
+     * Percentage of due days completed within a range (inclusive), 0-100
+     */
+    public static int completionRate(HabitHistory habit, int startDay, int endDay) {
+        int dueDays = habit.getSchedule().countScheduled(startDay, endDay);
+        if (dueDays == 0) {
+            return 0;
+        }
+        return habit.getCompletionIndex().countDueBetween(startDay, endDay) * 100 / dueDays;
+    }
+}
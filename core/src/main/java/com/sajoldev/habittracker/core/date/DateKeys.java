@@ -0,0 +1,206 @@
+package com.sajoldev.habittracker.core.date;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * DateKeys - Thread-safe date keying built on java.time
+ * Maps between epoch days (days since 1970-01-01), LocalDate and "yyyy-MM-dd" keys
+ *
+ * Keys are always ASCII, whatever the device locale. Keys for days between 2000 and 2044
+ * are built once and cached, and parsing is plain arithmetic, so hot loops over days
+ * allocate nothing. The device time zone is cached and refreshed via refreshZone()
+ * when the system reports a time zone change.
+ */
+public final class DateKeys {
+
+    /** Returned by parse methods when the input is not a valid key */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    // Cached keys for [CACHE_START, CACHE_START + CACHE_SIZE); filled lazily.
+    // Racing writers store equal immutable Strings, so a plain array is safe.
+    private static final int CACHE_START = (int) LocalDate.of(2000, 1, 1).toEpochDay();
+    private static final int CACHE_SIZE = 1 << 14;
+    private static final String[] keyCache = new String[CACHE_SIZE];
+
+    private static volatile ZoneState zoneState = new ZoneState(TimeZone.getDefault());
+
+    private DateKeys() {
+    }
+
+    /**
+     * Re-read the device time zone
+     * Call when ACTION_TIMEZONE_CHANGED is received
+     */
+    public static void refreshZone() {
+        zoneState = new ZoneState(TimeZone.getDefault());
+    }
+
+    /**
+     * Get the cached device time zone
+     */
+    public static ZoneId zone() {
+        return zoneState.zoneId;
+    }
+
+    /**
+     * Convert a millisecond timestamp to a local epoch day
+     */
+    public static int toEpochDay(long timeMillis) {
+        TimeZone timeZone = zoneState.timeZone;
+        return (int) Math.floorDiv(timeMillis + timeZone.getOffset(timeMillis), MILLIS_PER_DAY);
+    }
+
+    /**
+     * Convert a Date to a local epoch day
+     */
+    public static int toEpochDay(Date date) {
+        return toEpochDay(date.getTime());
+    }
+
+    /**
+     * Convert a LocalDate to an epoch day
+     */
+    public static int toEpochDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    /**
+     * Get today's local epoch day
+     */
+    public static int today() {
+        return toEpochDay(System.currentTimeMillis());
+    }
+
+    /**
+     * Convert an epoch day to a LocalDate
+     */
+    public static LocalDate toLocalDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Convert an epoch day to a Date at the start of that local day
+     */
+    public static Date toDate(int epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(zoneState.zoneId).toInstant());
+    }
+
+    /**
+     * Get the "yyyy-MM-dd" key of an epoch day
+     */
+    public static String toKey(int epochDay) {
+        int slot = epochDay - CACHE_START;
+        if (slot >= 0 && slot < CACHE_SIZE) {
+            String key = keyCache[slot];
+            if (key == null) {
+                key = buildKey(epochDay);
+                keyCache[slot] = key;
+            }
+            return key;
+        }
+        return buildKey(epochDay);
+    }
+
+    /**
+     * Get the "yyyy-MM-dd" key of a Date in the device time zone
+     */
+    public static String toKey(Date date) {
+        return toKey(toEpochDay(date));
+    }
+
+    /**
+     * Parse a "yyyy-MM-dd" key into an epoch day
+     * Accepts any Unicode digits, since older keys were written with the device locale
+     * @return the epoch day, or INVALID if the key is not a valid date
+     */
+    public static int parseKey(String key) {
+        if (key == null) return INVALID;
+        int start = 0;
+        int end = key.length();
+        while (start < end && key.charAt(start) <= ' ') start++;
+        while (end > start && key.charAt(end - 1) <= ' ') end--;
+        if (end - start != 10 || key.charAt(start + 4) != '-' || key.charAt(start + 7) != '-') {
+            return INVALID;
+        }
+        int year = parseDigits(key, start, start + 4);
+        int month = parseDigits(key, start + 5, start + 7);
+        int day = parseDigits(key, start + 8, start + 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        return epochDayOf(year, month, day);
+    }
+
+    /**
+     * Epoch day of a proleptic Gregorian date (no validation)
+     */
+    public static int epochDayOf(int year, int month, int day) {
+        // Days-from-civil: shift the year to start in March so the leap day is last
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int parseDigits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static String buildKey(int epochDay) {
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            return date.toString();
+        }
+        int month = date.getMonthValue();
+        int day = date.getDayOfMonth();
+        char[] chars = {
+                (char) ('0' + year / 1000), (char) ('0' + year / 100 % 10),
+                (char) ('0' + year / 10 % 10), (char) ('0' + year % 10), '-',
+                (char) ('0' + month / 10), (char) ('0' + month % 10), '-',
+                (char) ('0' + day / 10), (char) ('0' + day % 10)
+        };
+        return new String(chars);
+    }
+
+    /**
+     * Time zone snapshot; replaced as a whole so readers never see a half-updated pair
+     */
+    private static final class ZoneState {
+        final TimeZone timeZone;
+        final ZoneId zoneId;
+
+        ZoneState(TimeZone timeZone) {
+            this.timeZone = timeZone;
+            this.zoneId = timeZone.toZoneId();
+        }
+    }
+}
@@ -0,0 +1,474 @@
+package com.sajoldev.habittracker.core.model;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * CompletionBitmap - Compact completion history of one habit
+ * One bit per epoch day, packed into 64-day words anchored at the first recorded day
+ * (normally the day the habit was created), so a lookup is a single bit test
+ *
+ * Stored as a BLOB through CompletionBitmapConverter. The stored form is run-length encoded:
+ * runs of empty words (long gaps) and full words (perfect stretches) take one or two bytes,
+ * everything else is written as raw 64-bit words
+ */
+public class CompletionBitmap {
+
+    /** Returned by search operations when no matching day exists */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final int RUN_ZEROS = 0;
+    private static final int RUN_ONES = 1;
+    private static final int RUN_LITERALS = 2;
+
+    private static final long[] EMPTY = new long[0];
+
+    // Absolute index of words[0]; word w covers epoch days [w * 64, w * 64 + 63]
+    private int baseWord;
+    private long[] words = EMPTY;
+    private int wordCount;
+    private int cardinality;
+
+    public CompletionBitmap() {
+    }
+
+    /**
+     * Create a bitmap holding the given epoch days (any order, duplicates ignored)
+     */
+    public static CompletionBitmap of(int... days) {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        if (days.length == 0) return bitmap;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int day : days) {
+            if (day < min) min = day;
+            if (day > max) max = day;
+        }
+        bitmap.baseWord = min >> 6;
+        bitmap.wordCount = (max >> 6) - bitmap.baseWord + 1;
+        bitmap.words = new long[bitmap.wordCount];
+        for (int day : days) {
+            bitmap.add(day);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Get an independent copy of this bitmap
+     */
+    public CompletionBitmap copy() {
+        CompletionBitmap copy = new CompletionBitmap();
+        copy.baseWord = baseWord;
+        copy.words = Arrays.copyOf(words, wordCount);
+        copy.wordCount = wordCount;
+        copy.cardinality = cardinality;
+        return copy;
+    }
+
+    /**
+     * Check whether a day is set
+     */
+    public boolean contains(int day) {
+        int w = (day >> 6) - baseWord;
+        return w >= 0 && w < wordCount && (words[w] & (1L << day)) != 0;
+    }
+
+    /**
+     * Set a day
+     * @return true if the day was not set before
+     */
+    public boolean add(int day) {
+        int w = ensureWord(day >> 6);
+        long bit = 1L << day;
+        if ((words[w] & bit) != 0) return false;
+        words[w] |= bit;
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * Clear a day
+     * @return true if the day was set before
+     */
+    public boolean remove(int day) {
+        int w = (day >> 6) - baseWord;
+        if (w < 0 || w >= wordCount) return false;
+        long bit = 1L << day;
+        if ((words[w] & bit) == 0) return false;
+        words[w] &= ~bit;
+        cardinality--;
+        return true;
+    }
+
+    /**
+     * Number of days set
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Bitmaps are equal when they hold the same days, however their words are anchored
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CompletionBitmap)) return false;
+        CompletionBitmap other = (CompletionBitmap) o;
+        if (cardinality != other.cardinality) return false;
+        int from = Math.min(baseWord, other.baseWord);
+        int to = Math.max(baseWord + wordCount, other.baseWord + other.wordCount);
+        for (int word = from; word < to; word++) {
+            if (wordAt(word) != other.wordAt(word)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = cardinality;
+        for (int w = 0; w < wordCount; w++) {
+            if (words[w] != 0) {
+                hash = 31 * hash + (baseWord + w) * 17 + Long.hashCode(words[w]);
+            }
+        }
+        return hash;
+    }
+
+    // Word by absolute index, 0 outside the stored range
+    private long wordAt(int word) {
+        int w = word - baseWord;
+        return w >= 0 && w < wordCount ? words[w] : 0;
+    }
+
+    /**
+     * Count the days set within a range (inclusive) using popcount per word
+     */
+    public int countRange(int startDay, int endDay) {
+        return countRange(startDay, endDay, WeekdaySchedule.DAILY);
+    }
+
+    /**
+     * Count the scheduled days set within a range (inclusive)
+     * Each word is masked with the schedule's pattern before the popcount
+     */
+    public int countRange(int startDay, int endDay, WeekdaySchedule schedule) {
+        if (startDay > endDay || wordCount == 0) return 0;
+        int first = (startDay >> 6) - baseWord;
+        int last = (endDay >> 6) - baseWord;
+        if (last < 0 || first >= wordCount) return 0;
+
+        long firstMask = first < 0 ? -1L : -1L << startDay;
+        long lastMask = last >= wordCount ? -1L : -1L >>> (63 - (endDay & 63));
+        first = Math.max(first, 0);
+        last = Math.min(last, wordCount - 1);
+
+        if (first == last) {
+            return Long.bitCount(scheduled(first, schedule) & firstMask & lastMask);
+        }
+        int count = Long.bitCount(scheduled(first, schedule) & firstMask);
+        for (int w = first + 1; w < last; w++) {
+            count += Long.bitCount(scheduled(w, schedule));
+        }
+        return count + Long.bitCount(scheduled(last, schedule) & lastMask);
+    }
+
+    /**
+     * Find the first set day on or after the given day
+     * @return the day, or NONE if there is none
+     */
+    public int nextSetDay(int fromDay) {
+        int w = (fromDay >> 6) - baseWord;
+        if (wordCount == 0 || w >= wordCount) return NONE;
+        long word;
+        if (w < 0) {
+            w = 0;
+            word = words[0];
+        } else {
+            word = words[w] & (-1L << fromDay);
+        }
+        while (true) {
+            if (word != 0) {
+                return ((baseWord + w) << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= wordCount) return NONE;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Find the last set day on or before the given day
+     * @return the day, or NONE if there is none
+     */
+    public int previousSetDay(int fromDay) {
+        int w = (fromDay >> 6) - baseWord;
+        if (w < 0) return NONE;
+        long word;
+        if (w >= wordCount) {
+            w = wordCount - 1;
+            if (w < 0) return NONE;
+            word = words[w];
+        } else {
+            word = words[w] & (-1L >>> (63 - (fromDay & 63)));
+        }
+        while (true) {
+            if (word != 0) {
+                return ((baseWord + w) << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (--w < 0) return NONE;
+            word = words[w];
+        }
+    }
+
+    /**
+     * Find the last clear day on or before the given day
+     * The run of set days ending at fromDay is fromDay - previousClearDay(fromDay) long
+     */
+    public int previousClearDay(int fromDay) {
+        return previousClearDay(fromDay, WeekdaySchedule.DAILY);
+    }
+
+    /**
+     * Find the last scheduled day on or before the given day that is not set
+     * Unscheduled days are skipped, so a streak over scheduled days runs from just after it
+     */
+    public int previousClearDay(int fromDay, WeekdaySchedule schedule) {
+        int w = (fromDay >> 6) - baseWord;
+        if (w < 0 || w >= wordCount) {
+            // Days outside the words are clear, but the due day found may fall back inside them
+            int dueDay = schedule.previousScheduledDay(fromDay);
+            int dueWord = (dueDay >> 6) - baseWord;
+            if (w < 0 || dueWord >= wordCount) return dueDay;
+            return previousClearDay(dueDay, schedule);
+        }
+        long word = missed(w, schedule) & (-1L >>> (63 - (fromDay & 63)));
+        while (true) {
+            if (word != 0) {
+                return ((baseWord + w) << 6) + 63 - Long.numberOfLeadingZeros(word);
+            }
+            if (--w < 0) return schedule.previousScheduledDay((baseWord << 6) - 1);
+            word = missed(w, schedule);
+        }
+    }
+
+    /**
+     * Find the first clear day on or after the given day
+     * The run of set days starting at fromDay is nextClearDay(fromDay) - fromDay long
+     */
+    public int nextClearDay(int fromDay) {
+        return nextClearDay(fromDay, WeekdaySchedule.DAILY);
+    }
+
+    /**
+     * Find the first scheduled day on or after the given day that is not set
+     */
+    public int nextClearDay(int fromDay, WeekdaySchedule schedule) {
+        int w = (fromDay >> 6) - baseWord;
+        if (w < 0 || w >= wordCount) {
+            int dueDay = schedule.nextScheduledDay(fromDay);
+            int dueWord = (dueDay >> 6) - baseWord;
+            if (w >= wordCount || dueWord < 0) return dueDay;
+            return nextClearDay(dueDay, schedule);
+        }
+        long word = missed(w, schedule) & (-1L << fromDay);
+        while (true) {
+            if (word != 0) {
+                return ((baseWord + w) << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w >= wordCount) return schedule.nextScheduledDay((baseWord + wordCount) << 6);
+            word = missed(w, schedule);
+        }
+    }
+
+    // Word layout, for CompletionIndex
+    int baseWord() {
+        return baseWord;
+    }
+
+    int wordCount() {
+        return wordCount;
+    }
+
+    long word(int w) {
+        return words[w];
+    }
+
+    // Set days of word w that the schedule counts
+    private long scheduled(int w, WeekdaySchedule schedule) {
+        return words[w] & schedule.wordPattern(baseWord + w);
+    }
+
+    // Scheduled days of word w that are not set
+    private long missed(int w, WeekdaySchedule schedule) {
+        return ~words[w] & schedule.wordPattern(baseWord + w);
+    }
+
+    /**
+     * Get all set days, oldest first
+     */
+    public int[] toArray() {
+        int[] days = new int[cardinality];
+        int i = 0;
+        for (int w = 0; w < wordCount; w++) {
+            long word = words[w];
+            while (word != 0) {
+                days[i++] = ((baseWord + w) << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Encode into the stored BLOB form
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + wordCount);
+        out.write(FORMAT_VERSION);
+
+        // Leading and trailing empty words are not stored
+        int first = 0;
+        int end = wordCount;
+        while (first < end && words[first] == 0) first++;
+        while (end > first && words[end - 1] == 0) end--;
+        if (first == end) return out.toByteArray();
+
+        writeVarint(out, zigZag(baseWord + first));
+        int w = first;
+        while (w < end) {
+            long word = words[w];
+            int runEnd = w + 1;
+            if (word == 0 || word == -1L) {
+                while (runEnd < end && words[runEnd] == word) runEnd++;
+                writeVarint(out, ((runEnd - w) << 2) | (word == 0 ? RUN_ZEROS : RUN_ONES));
+            } else {
+                while (runEnd < end && words[runEnd] != 0 && words[runEnd] != -1L) runEnd++;
+                writeVarint(out, ((runEnd - w) << 2) | RUN_LITERALS);
+                for (int i = w; i < runEnd; i++) {
+                    long literal = words[i];
+                    for (int b = 0; b < 8; b++) {
+                        out.write((int) (literal >>> (b * 8)));
+                    }
+                }
+            }
+            w = runEnd;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Decode the stored BLOB form
+     * @throws IllegalArgumentException if the data is not a valid encoding
+     */
+    public static CompletionBitmap fromBytes(byte[] data) {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        if (data == null || data.length <= 1) return bitmap;
+        if (data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown completion bitmap format " + data[0]);
+        }
+        int[] pos = {1};
+        bitmap.baseWord = unZigZag(readVarint(data, pos));
+
+        long[] words = new long[Math.max(4, data.length / 8)];
+        int count = 0;
+        int cardinality = 0;
+        while (pos[0] < data.length) {
+            int header = readVarint(data, pos);
+            int length = header >>> 2;
+            int kind = header & 3;
+            if (count + length > words.length) {
+                words = Arrays.copyOf(words, Math.max(words.length * 2, count + length));
+            }
+            if (kind == RUN_ZEROS) {
+                count += length;
+            } else if (kind == RUN_ONES) {
+                Arrays.fill(words, count, count + length, -1L);
+                count += length;
+                cardinality += length * 64;
+            } else if (kind == RUN_LITERALS) {
+                if (pos[0] + length * 8 > data.length) {
+                    throw new IllegalArgumentException("Truncated completion bitmap");
+                }
+                for (int i = 0; i < length; i++) {
+                    long literal = 0;
+                    for (int b = 0; b < 8; b++) {
+                        literal |= (data[pos[0]++] & 0xFFL) << (b * 8);
+                    }
+                    words[count++] = literal;
+                    cardinality += Long.bitCount(literal);
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown completion bitmap run " + kind);
+            }
+        }
+        bitmap.words = words;
+        bitmap.wordCount = count;
+        bitmap.cardinality = cardinality;
+        return bitmap;
+    }
+
+    /**
+     * Make sure the absolute word index is backed by the array
+     * @return the index of that word within words
+     */
+    private int ensureWord(int absoluteWord) {
+        if (wordCount == 0) {
+            baseWord = absoluteWord;
+            if (words.length == 0) words = new long[4];
+            wordCount = 1;
+            return 0;
+        }
+        if (absoluteWord < baseWord) {
+            // Grow downwards, e.g. when a day before the anchor is recorded
+            int shift = baseWord - absoluteWord;
+            long[] grown = new long[Math.max(words.length, wordCount + shift)];
+            System.arraycopy(words, 0, grown, shift, wordCount);
+            words = grown;
+            wordCount += shift;
+            baseWord = absoluteWord;
+            return 0;
+        }
+        int w = absoluteWord - baseWord;
+        if (w >= wordCount) {
+            if (w >= words.length) {
+                words = Arrays.copyOf(words, Math.max(words.length * 2, w + 1));
+            }
+            wordCount = w + 1;
+        }
+        return w;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] data, int[] pos) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new IllegalArgumentException("Truncated completion bitmap");
+            }
+            byte b = data[pos[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalArgumentException("Malformed completion bitmap");
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,99 @@
+package com.sajoldev.habittracker.core.model;
+
+/**
+ * CompletionIndex - Prefix sums over a CompletionBitmap
+ * Built lazily by a HabitHistory and kept in step with it on every toggle
+ *
+ * Holds the running count of set days before each 64-day word, both for every day and
+ * for the days the habit is due. A count over any window is then two lookups plus one
+ * popcount at each end, so a 7-day rate and an all-time rate cost the same.
+ * A toggle adds one to the counts of the words after it; a toggle that grows the
+ * bitmap's word range makes the index stale and it is rebuilt on next use.
+ */
+public final class CompletionIndex {
+
+    private final CompletionBitmap bitmap;
+    private final WeekdaySchedule schedule;
+    private final int baseWord;
+    private final int wordCount;
+
+    // Set days in words [0, w), overall and on due days only
+    private final int[] ranks;
+    private final int[] dueRanks;
+
+    private CompletionIndex(CompletionBitmap bitmap, WeekdaySchedule schedule) {
+        this.bitmap = bitmap;
+        this.schedule = schedule;
+        this.baseWord = bitmap.baseWord();
+        this.wordCount = bitmap.wordCount();
+        this.ranks = new int[wordCount + 1];
+        this.dueRanks = new int[wordCount + 1];
+        for (int w = 0; w < wordCount; w++) {
+            long word = bitmap.word(w);
+            ranks[w + 1] = ranks[w] + Long.bitCount(word);
+            dueRanks[w + 1] = dueRanks[w] + Long.bitCount(word & schedule.wordPattern(baseWord + w));
+        }
+    }
+
+    /**
+     * Build the index of a bitmap
+     */
+    public static CompletionIndex of(CompletionBitmap bitmap, WeekdaySchedule schedule) {
+        return new CompletionIndex(bitmap, schedule);
+    }
+
+    /**
+     * Check if the index still matches the bitmap's word range
+     */
+    public boolean isCurrent() {
+        return bitmap.baseWord() == baseWord && bitmap.wordCount() == wordCount;
+    }
+
+    /**
+     * Record a day that was just set or cleared in the bitmap
+     */
+    public void onToggle(int epochDay, boolean added) {
+        // The bitmap grew: leave the index stale so it is rebuilt on next use
+        if (!isCurrent()) return;
+        int delta = added ? 1 : -1;
+        boolean due = schedule.isScheduled(epochDay);
+        for (int w = (epochDay >> 6) - baseWord + 1; w <= wordCount; w++) {
+            ranks[w] += delta;
+            if (due) dueRanks[w] += delta;
+        }
+    }
+
+    /**
+     * Number of completed days within a range (inclusive)
+     */
+    public int countBetween(int startDay, int endDay) {
+        if (startDay > endDay) return 0;
+        return rank(endDay + 1, false) - rank(startDay, false);
+    }
+
+    /**
+     * Number of completed due days within a range (inclusive)
+     */
+    public int countDueBetween(int startDay, int endDay) {
+        if (startDay > endDay) return 0;
+        return rank(endDay + 1, true) - rank(startDay, true);
+    }
+
+    /**
+     * Number of completed days in the whole history
+     */
+    public int count() {
+        return ranks[wordCount];
+    }
+
+    // Set days before the given day
+    private int rank(int epochDay, boolean dueOnly) {
+        int[] prefix = dueOnly ? dueRanks : ranks;
+        int w = (epochDay >> 6) - baseWord;
+        if (w < 0) return 0;
+        if (w >= wordCount) return prefix[wordCount];
+        long word = bitmap.word(w) & ((1L << epochDay) - 1);
+        if (dueOnly) word &= schedule.wordPattern(baseWord + w);
+        return prefix[w] + Long.bitCount(word);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sajoldev.habittracker.core.model;
+
+/**
+ * HabitHistory - What analytics need to know about one habit
+ * Implemented by the app's Room entity; HabitRecord is a plain implementation for
+ * code that runs without a database
+ *
+ * The indexes are derived from the bitmap and schedule and may be built lazily, but
+ * an implementation must return the same instances until the history changes.
+ */
+public interface HabitHistory {
+
+    int getId();
+
+    /**
+     * Epoch day the habit was created, or DateKeys.INVALID if unknown
+     */
+    int getCreatedDay();
+
+    WeekdaySchedule getSchedule();
+
+    CompletionBitmap getCompletionBitmap();
+
+    StreakIndex getStreakIndex();
+
+    CompletionIndex getCompletionIndex();
+
+    /**
+     * Current streak as last stored, which may lag behind the history until recalculated
+     */
+    int getCurrentStreak();
+}
@@ -0,0 +1,94 @@
+package com.sajoldev.habittracker.core.model;
+
+/**
+ * HabitRecord - A habit's history held in memory, with no database behind it
+ * For tests, benchmarks and batch analytics on a plain JVM
+ */
+public final class HabitRecord implements HabitHistory {
+
+    private final int id;
+    private final int createdDay;
+    private final WeekdaySchedule schedule;
+    private final CompletionBitmap completionBitmap;
+    private int currentStreak;
+
+    private StreakIndex streakIndex;
+    private CompletionIndex completionIndex;
+
+    public HabitRecord(int id, int createdDay, WeekdaySchedule schedule, CompletionBitmap completionBitmap) {
+        this.id = id;
+        this.createdDay = createdDay;
+        this.schedule = schedule;
+        this.completionBitmap = completionBitmap;
+    }
+
+    /**
+     * Snapshot of another habit's history, with its own copy of the bitmap
+     * Lets a history owned by one thread be analysed on others
+     */
+    public static HabitRecord copyOf(HabitHistory habit) {
+        HabitRecord record = new HabitRecord(habit.getId(), habit.getCreatedDay(), habit.getSchedule(),
+                habit.getCompletionBitmap().copy());
+        record.setCurrentStreak(habit.getCurrentStreak());
+        return record;
+    }
+
+    @Override
+    public int getId() { return id; }
+
+    @Override
+    public int getCreatedDay() { return createdDay; }
+
+    @Override
+    public WeekdaySchedule getSchedule() { return schedule; }
+
+    @Override
+    public CompletionBitmap getCompletionBitmap() { return completionBitmap; }
+
+    @Override
+    public StreakIndex getStreakIndex() {
+        if (streakIndex == null) {
+            streakIndex = StreakIndex.of(completionBitmap, schedule);
+        }
+        return streakIndex;
+    }
+
+    @Override
+    public CompletionIndex getCompletionIndex() {
+        if (completionIndex == null || !completionIndex.isCurrent()) {
+            completionIndex = CompletionIndex.of(completionBitmap, schedule);
+        }
+        return completionIndex;
+    }
+
+    @Override
+    public int getCurrentStreak() { return currentStreak; }
+
+    public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
+
+    /**
+     * Mark a day as completed, keeping the indexes in step
+     */
+    public void markCompletedOnDay(int epochDay) {
+        if (!completionBitmap.add(epochDay)) return;
+        if (streakIndex != null && schedule.isScheduled(epochDay)) {
+            streakIndex.add(schedule.ordinal(epochDay));
+        }
+        if (completionIndex != null) {
+            completionIndex.onToggle(epochDay, true);
+        }
+    }
+
+    /**
+     * Unmark a completed day, keeping the indexes in step
+     */
+    public void unmarkCompletedOnDay(int epochDay) {
+        if (!completionBitmap.remove(epochDay)) return;
+        if (streakIndex != null && schedule.isScheduled(epochDay)) {
+            streakIndex.remove(schedule.ordinal(epochDay));
+        }
+        if (completionIndex != null) {
+            completionIndex.onToggle(epochDay, false);
+        }
+    }
+}
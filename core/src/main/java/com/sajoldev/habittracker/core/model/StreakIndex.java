@@ -0,0 +1,187 @@
+package com.sajoldev.habittracker.core.model;
+
+import java.util.Arrays;
+
+/**
+ * StreakIndex - A habit's completed days as sorted runs of consecutive days
+ * Built from a CompletionBitmap and kept in step with it on every toggle
+ * Days are stored as schedule ordinals (WeekdaySchedule.ordinal), so only the days a habit
+ * is due take part in its streaks; for daily habits an ordinal is the epoch day minus a constant
+ *
+ * Each run is stored as an inclusive [start, end] pair. A streak question is one binary
+ * search over the run starts, so its cost depends on the number of runs, not on how many
+ * days the history spans. Marking a day may extend a run or join two runs into one;
+ * unmarking may shorten a run or split it in two.
+ */
+public final class StreakIndex {
+
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    // Length of the longest run; recomputed lazily after the longest run is shortened
+    private int longest;
+    private boolean longestStale;
+
+    public StreakIndex() {
+        starts = new int[8];
+        ends = new int[8];
+    }
+
+    /**
+     * Build an index of the runs of scheduled days in a bitmap
+     * Unscheduled days neither break nor extend a run
+     */
+    public static StreakIndex of(CompletionBitmap bitmap, WeekdaySchedule schedule) {
+        StreakIndex index = new StreakIndex();
+        int day = bitmap.nextSetDay(Integer.MIN_VALUE + 1);
+        while (day != CompletionBitmap.NONE) {
+            if (!schedule.isScheduled(day)) {
+                day = bitmap.nextSetDay(day + 1);
+                continue;
+            }
+            int end = bitmap.nextClearDay(day, schedule);
+            index.append(schedule.ordinal(day), schedule.ordinal(end) - 1);
+            day = bitmap.nextSetDay(end + 1);
+        }
+        return index;
+    }
+
+    /**
+     * Number of separate runs
+     */
+    public int runCount() {
+        return size;
+    }
+
+    public boolean contains(int ordinal) {
+        int i = floorRun(ordinal);
+        return i >= 0 && ordinal <= ends[i];
+    }
+
+    /**
+     * Streak as of a day: consecutive completed days ending on it
+     * @return the streak length, or 0 if the day itself was not completed
+     */
+    public int streakEndingAt(int ordinal) {
+        int i = floorRun(ordinal);
+        if (i < 0 || ordinal > ends[i]) return 0;
+        return ordinal - starts[i] + 1;
+    }
+
+    /**
+     * Current streak as of a due day, counting from it, or from the previous due day
+     * if it is not completed yet
+     */
+    public int currentStreak(int ordinal) {
+        int i = floorRun(ordinal);
+        if (i < 0) return 0;
+        // The day is in run i, or run i ends just before it and the day is still open
+        if (ordinal <= ends[i] || ends[i] == ordinal - 1) {
+            return Math.min(ordinal, ends[i]) - starts[i] + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Length of the longest run in the history
+     */
+    public int longestStreak() {
+        if (longestStale) {
+            longest = 0;
+            for (int i = 0; i < size; i++) {
+                longest = Math.max(longest, ends[i] - starts[i] + 1);
+            }
+            longestStale = false;
+        }
+        return longest;
+    }
+
+    /**
+     * Mark a day as completed, extending or joining neighbouring runs
+     * @return true if the day was not already completed
+     */
+    public boolean add(int ordinal) {
+        int i = floorRun(ordinal);
+        if (i >= 0 && ordinal <= ends[i]) return false;
+
+        boolean joinsLeft = i >= 0 && ends[i] == ordinal - 1;
+        boolean joinsRight = i + 1 < size && starts[i + 1] == ordinal + 1;
+        int run;
+        if (joinsLeft && joinsRight) {
+            ends[i] = ends[i + 1];
+            removeRun(i + 1);
+            run = i;
+        } else if (joinsLeft) {
+            ends[i] = ordinal;
+            run = i;
+        } else if (joinsRight) {
+            starts[i + 1] = ordinal;
+            run = i + 1;
+        } else {
+            insertRun(i + 1, ordinal, ordinal);
+            run = i + 1;
+        }
+        if (!longestStale) {
+            longest = Math.max(longest, ends[run] - starts[run] + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Unmark a completed day, shortening or splitting its run
+     * @return true if the day was completed
+     */
+    public boolean remove(int ordinal) {
+        int i = floorRun(ordinal);
+        if (i < 0 || ordinal > ends[i]) return false;
+
+        int start = starts[i];
+        int end = ends[i];
+        if (end - start + 1 == longest) {
+            longestStale = true;
+        }
+        if (start == end) {
+            removeRun(i);
+        } else if (ordinal == start) {
+            starts[i] = ordinal + 1;
+        } else if (ordinal == end) {
+            ends[i] = ordinal - 1;
+        } else {
+            ends[i] = ordinal - 1;
+            insertRun(i + 1, ordinal + 1, end);
+        }
+        return true;
+    }
+
+    /**
+     * Index of the last run starting on or before the day, or -1
+     */
+    private int floorRun(int ordinal) {
+        int i = Arrays.binarySearch(starts, 0, size, ordinal);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    private void append(int start, int end) {
+        insertRun(size, start, end);
+        longest = Math.max(longest, end - start + 1);
+    }
+
+    private void insertRun(int at, int start, int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        System.arraycopy(starts, at, starts, at + 1, size - at);
+        System.arraycopy(ends, at, ends, at + 1, size - at);
+        starts[at] = start;
+        ends[at] = end;
+        size++;
+    }
+
+    private void removeRun(int at) {
+        System.arraycopy(starts, at + 1, starts, at, size - at - 1);
+        System.arraycopy(ends, at + 1, ends, at, size - at - 1);
+        size--;
+    }
+}
@@ -0,0 +1,159 @@
+package com.sajoldev.habittracker.core.model;
+
+/**
+ * WeekdaySchedule - The days of the week a habit is due, as a 7-bit mask
+ * Bit 0 is Monday and bit 6 is Sunday
+ *
+ * Parsed once from a habit's frequency and selectedDays. Schedules are immutable and
+ * shared, one per mask. Every question is answered with bit operations on the mask,
+ * plus 64-day word patterns that line up with CompletionBitmap words.
+ *
+ * - Daily: every day
+ * - Weekly: Mondays
+ * - Custom: the days named in selectedDays ("Mon,Wed,Fri"); every day if none are named
+ */
+public final class WeekdaySchedule {
+
+    public static final int ALL_DAYS = 0x7F;
+
+    private static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    // 1970-01-05, the first Monday on or after epoch day 0
+    private static final int FIRST_MONDAY = 4;
+
+    private static final WeekdaySchedule[] SCHEDULES = new WeekdaySchedule[ALL_DAYS + 1];
+
+    static {
+        for (int mask = 1; mask <= ALL_DAYS; mask++) {
+            SCHEDULES[mask] = new WeekdaySchedule(mask);
+        }
+    }
+
+    public static final WeekdaySchedule DAILY = SCHEDULES[ALL_DAYS];
+
+    private final int mask;
+    private final int daysPerWeek;
+
+    // Scheduled weekdays before each weekday, so prefix[7] == daysPerWeek
+    private final int[] prefix = new int[8];
+
+    // Scheduled days of a 64-day bitmap word, by the weekday of the word's first day
+    private final long[] wordPatterns = new long[7];
+
+    private WeekdaySchedule(int mask) {
+        this.mask = mask;
+        this.daysPerWeek = Integer.bitCount(mask);
+        for (int weekday = 0; weekday < 7; weekday++) {
+            prefix[weekday + 1] = prefix[weekday] + ((mask >>> weekday) & 1);
+        }
+        for (int phase = 0; phase < 7; phase++) {
+            long pattern = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                if (((mask >>> ((phase + bit) % 7)) & 1) != 0) {
+                    pattern |= 1L << bit;
+                }
+            }
+            wordPatterns[phase] = pattern;
+        }
+    }
+
+    /**
+     * Get the schedule for a weekday mask; an empty mask means every day
+     */
+    public static WeekdaySchedule forMask(int mask) {
+        mask &= ALL_DAYS;
+        return mask == 0 ? DAILY : SCHEDULES[mask];
+    }
+
+    /**
+     * Parse a habit's frequency and selectedDays
+     */
+    public static WeekdaySchedule of(String frequency, String selectedDays) {
+        if ("Weekly".equals(frequency)) {
+            return forMask(1);
+        }
+        if (!"Custom".equals(frequency) || selectedDays == null) {
+            return DAILY;
+        }
+        int mask = 0;
+        for (String name : selectedDays.split(",")) {
+            name = name.trim();
+            for (int weekday = 0; weekday < 7; weekday++) {
+                if (DAY_NAMES[weekday].equalsIgnoreCase(name)) {
+                    mask |= 1 << weekday;
+                }
+            }
+        }
+        return forMask(mask);
+    }
+
+    /**
+     * Day of the week of an epoch day, 0 = Monday ... 6 = Sunday
+     */
+    public static int weekday(int epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
+    public int getMask() {
+        return mask;
+    }
+
+    public int getDaysPerWeek() {
+        return daysPerWeek;
+    }
+
+    public boolean isDaily() {
+        return mask == ALL_DAYS;
+    }
+
+    /**
+     * Check if the habit is due on a day
+     */
+    public boolean isScheduled(int epochDay) {
+        return ((mask >>> weekday(epochDay)) & 1) != 0;
+    }
+
+    /**
+     * Number of scheduled days before the given day, counted from 1970-01-05
+     * Consecutive scheduled days have consecutive ordinals, so a streak over scheduled
+     * days is a run of consecutive ordinals
+     */
+    public int ordinal(int epochDay) {
+        int offset = epochDay - FIRST_MONDAY;
+        int weeks = Math.floorDiv(offset, 7);
+        return weeks * daysPerWeek + prefix[offset - weeks * 7];
+    }
+
+    /**
+     * Number of scheduled days within a range (inclusive)
+     */
+    public int countScheduled(int startDay, int endDay) {
+        if (startDay > endDay) return 0;
+        return ordinal(endDay + 1) - ordinal(startDay);
+    }
+
+    /**
+     * Last scheduled day on or before the given day
+     */
+    public int previousScheduledDay(int epochDay) {
+        int weekday = weekday(epochDay);
+        // Two copies of the mask, so looking back never has to wrap
+        int doubled = (mask | (mask << 7)) & ((1 << (weekday + 8)) - 1);
+        return epochDay - (weekday + 7 - (31 - Integer.numberOfLeadingZeros(doubled)));
+    }
+
+    /**
+     * First scheduled day on or after the given day
+     */
+    public int nextScheduledDay(int epochDay) {
+        int doubled = (mask | (mask << 7)) >>> weekday(epochDay);
+        return epochDay + Integer.numberOfTrailingZeros(doubled);
+    }
+
+    /**
+     * Scheduled days of the bitmap word covering days [word * 64, word * 64 + 63]
+     */
+    long wordPattern(int word) {
+        return wordPatterns[weekday(word << 6)];
+    }
+}
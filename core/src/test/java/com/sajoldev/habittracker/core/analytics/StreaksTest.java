@@ -0,0 +1,86 @@
+package com.sajoldev.habittracker.core.analytics;
+
+import com.sajoldev.habittracker.core.model.CompletionBitmap;
+import com.sajoldev.habittracker.core.model.HabitRecord;
+import com.sajoldev.habittracker.core.model.StreakIndex;
+import com.sajoldev.habittracker.core.model.WeekdaySchedule;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * StreaksTest - Streak rules on habits that are not due every day
+ * Epoch day 4 is Monday 1970-01-05
+ */
+public class StreaksTest {
+
+    private static final WeekdaySchedule MWF = WeekdaySchedule.of("Custom", "Mon,Wed,Fri");
+    private static final WeekdaySchedule WEEKLY = WeekdaySchedule.of("Weekly", null);
+
+    /**
+     * Both ways of computing the current streak must agree
+     */
+    private static int currentStreak(CompletionBitmap bitmap, WeekdaySchedule schedule, int today) {
+        int fromBitmap = Streaks.currentStreak(bitmap, schedule, today);
+        int fromIndex = Streaks.currentStreak(StreakIndex.of(bitmap, schedule), schedule, today);
+        assertEquals("bitmap and index disagree on day " + today, fromIndex, fromBitmap);
+        return fromBitmap;
+    }
+
+    @Test
+    public void customSchedule_ignoresDaysNotDue() {
+        // Mon 4, Wed 6, Fri 8, Mon 11
+        CompletionBitmap bitmap = CompletionBitmap.of(4, 6, 8, 11);
+
+        // Tuesday is not due, so the streak still ends on Monday
+        assertEquals(4, currentStreak(bitmap, MWF, 12));
+        // Wednesday is due but still open
+        assertEquals(4, currentStreak(bitmap, MWF, 13));
+        // By Friday, Wednesday was missed
+        assertEquals(0, currentStreak(bitmap, MWF, 15));
+
+        // A completion on a day not due neither extends nor breaks the streak
+        bitmap.add(12);
+        assertEquals(4, currentStreak(bitmap, MWF, 12));
+    }
+
+    @Test
+    public void weeklySchedule_countsMondays() {
+        CompletionBitmap bitmap = CompletionBitmap.of(4, 11, 18);
+
+        assertEquals(3, currentStreak(bitmap, WEEKLY, 18));
+        assertEquals(3, currentStreak(bitmap, WEEKLY, 24));
+        assertEquals(3, currentStreak(bitmap, WEEKLY, 25));
+        assertEquals(0, currentStreak(bitmap, WEEKLY, 26));
+        assertEquals(0, currentStreak(new CompletionBitmap(), WEEKLY, 26));
+    }
+
+    @Test
+    public void runLengthAround_spansDaysNotDue() {
+        // Mon 4, Wed 6, Fri 8, Mon 11, then a gap, then Mon 18
+        CompletionBitmap bitmap = CompletionBitmap.of(4, 6, 8, 11, 18);
+
+        assertEquals(4, Streaks.runLengthAround(bitmap, MWF, 6));
+        assertEquals(4, Streaks.runLengthAround(bitmap, MWF, 11));
+        assertEquals(1, Streaks.runLengthAround(bitmap, MWF, 18));
+        // Not due, or due but not completed
+        assertEquals(0, Streaks.runLengthAround(bitmap, MWF, 7));
+        assertEquals(0, Streaks.runLengthAround(bitmap, MWF, 13));
+
+        // Weekly: Mondays 4, 11 and 18 are all completed
+        assertEquals(3, Streaks.runLengthAround(bitmap, WEEKLY, 4));
+    }
+
+    @Test
+    public void habitHistory_streaksAndRates() {
+        HabitRecord habit = new HabitRecord(1, 4, MWF, CompletionBitmap.of(4, 6, 8, 11, 18));
+
+        assertEquals(4, Streaks.longestStreak(habit));
+        assertEquals(3, Streaks.streakUpTo(habit, 9));
+        assertEquals(4, Streaks.streakUpTo(habit, 12));
+        assertEquals(1, Streaks.currentStreak(habit, 19));
+        // Due Mon 4 to Fri 22: 9 days, 5 completed
+        assertEquals(5 * 100 / 9, Streaks.completionRate(habit, 4, 22));
+    }
+}
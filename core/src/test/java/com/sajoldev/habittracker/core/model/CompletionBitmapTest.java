@@ -0,0 +1,187 @@
+package com.sajoldev.habittracker.core.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CompletionBitmapTest - Stored form and word-boundary behaviour of CompletionBitmap
+ */
+public class CompletionBitmapTest {
+
+    @Test
+    public void emptyBitmap_roundTripsToEmpty() {
+        byte[] bytes = new CompletionBitmap().toBytes();
+
+        assertEquals(1, bytes.length);
+        CompletionBitmap decoded = CompletionBitmap.fromBytes(bytes);
+        assertTrue(decoded.isEmpty());
+        assertEquals(new CompletionBitmap(), decoded);
+        assertTrue(CompletionBitmap.fromBytes(null).isEmpty());
+    }
+
+    @Test
+    public void fullWords_areStoredAsOneRun() {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        // Words 2, 3 and 4, every day set
+        for (int day = 128; day < 320; day++) {
+            bitmap.add(day);
+        }
+
+        byte[] bytes = bitmap.toBytes();
+        CompletionBitmap decoded = CompletionBitmap.fromBytes(bytes);
+
+        // Version, anchor and a single run header
+        assertEquals(3, bytes.length);
+        assertEquals(bitmap, decoded);
+        assertEquals(192, decoded.cardinality());
+        assertTrue(decoded.contains(128));
+        assertTrue(decoded.contains(319));
+        assertFalse(decoded.contains(127));
+        assertFalse(decoded.contains(320));
+    }
+
+    @Test
+    public void mixedWords_roundTrip() {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        // A full word, four empty words, a literal word, then another full word
+        for (int day = 0; day < 64; day++) {
+            bitmap.add(day);
+        }
+        bitmap.add(5 * 64 + 3);
+        bitmap.add(5 * 64 + 40);
+        for (int day = 6 * 64; day < 7 * 64; day++) {
+            bitmap.add(day);
+        }
+
+        CompletionBitmap decoded = CompletionBitmap.fromBytes(bitmap.toBytes());
+
+        assertEquals(bitmap, decoded);
+        assertEquals(bitmap.cardinality(), decoded.cardinality());
+        assertArrayEquals(bitmap.toArray(), decoded.toArray());
+    }
+
+    @Test
+    public void negativeAnchor_roundTrips() {
+        int[] days = {-200, -65, -64, -1, 0, 5};
+        CompletionBitmap bitmap = CompletionBitmap.of(days);
+
+        CompletionBitmap decoded = CompletionBitmap.fromBytes(bitmap.toBytes());
+
+        assertArrayEquals(days, decoded.toArray());
+        assertTrue(decoded.contains(-1));
+        assertFalse(decoded.contains(-2));
+        assertEquals(-200, decoded.nextSetDay(Integer.MIN_VALUE + 1));
+    }
+
+    @Test
+    public void emptyEdgeWords_areNotStored() {
+        CompletionBitmap bitmap = CompletionBitmap.of(10, 500, 1000);
+        bitmap.remove(10);
+        bitmap.remove(1000);
+
+        assertArrayEquals(CompletionBitmap.of(500).toBytes(), bitmap.toBytes());
+        assertEquals(CompletionBitmap.of(500), bitmap);
+        assertEquals(CompletionBitmap.of(500).hashCode(), bitmap.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFormat_isRejected() {
+        CompletionBitmap.fromBytes(new byte[]{99, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedLiteral_isRejected() {
+        byte[] bytes = CompletionBitmap.of(3).toBytes();
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        CompletionBitmap.fromBytes(truncated);
+    }
+
+    @Test
+    public void addAndRemove_acrossWordBoundary() {
+        CompletionBitmap bitmap = new CompletionBitmap();
+
+        assertTrue(bitmap.add(63));
+        assertTrue(bitmap.add(64));
+        assertFalse(bitmap.add(64));
+        assertEquals(2, bitmap.cardinality());
+        assertTrue(bitmap.contains(63));
+        assertTrue(bitmap.contains(64));
+
+        assertTrue(bitmap.remove(63));
+        assertFalse(bitmap.remove(63));
+        assertFalse(bitmap.remove(1000));
+        assertFalse(bitmap.remove(-1000));
+        assertArrayEquals(new int[]{64}, bitmap.toArray());
+    }
+
+    @Test
+    public void add_growsDownwardsBeforeTheAnchor() {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        bitmap.add(200);
+        bitmap.add(-1);
+        bitmap.add(64);
+
+        assertArrayEquals(new int[]{-1, 64, 200}, bitmap.toArray());
+        assertTrue(bitmap.contains(-1));
+        assertFalse(bitmap.contains(0));
+    }
+
+    @Test
+    public void nextSetDay_crossesWords() {
+        CompletionBitmap bitmap = CompletionBitmap.of(63, 64, 300);
+
+        assertEquals(63, bitmap.nextSetDay(0));
+        assertEquals(63, bitmap.nextSetDay(63));
+        assertEquals(64, bitmap.nextSetDay(64));
+        assertEquals(300, bitmap.nextSetDay(65));
+        assertEquals(CompletionBitmap.NONE, bitmap.nextSetDay(301));
+        assertEquals(63, bitmap.nextSetDay(-500));
+        assertEquals(64, bitmap.previousSetDay(299));
+        assertEquals(CompletionBitmap.NONE, bitmap.previousSetDay(62));
+        assertEquals(CompletionBitmap.NONE, new CompletionBitmap().nextSetDay(0));
+    }
+
+    @Test
+    public void clearDays_findRunsThatSpanWords() {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        for (int day = 60; day <= 130; day++) {
+            bitmap.add(day);
+        }
+
+        // The run covers the end of word 0, all of word 1 and the start of word 2
+        assertEquals(59, bitmap.previousClearDay(130));
+        assertEquals(59, bitmap.previousClearDay(64));
+        assertEquals(131, bitmap.nextClearDay(60));
+        assertEquals(131, bitmap.nextClearDay(127));
+        assertEquals(500, bitmap.previousClearDay(500));
+        assertEquals(-10, bitmap.nextClearDay(-10));
+    }
+
+    @Test
+    public void previousClearDay_fallsOffTheFirstWord() {
+        CompletionBitmap bitmap = new CompletionBitmap();
+        for (int day = 0; day < 128; day++) {
+            bitmap.add(day);
+        }
+
+        assertEquals(-1, bitmap.previousClearDay(127));
+        assertEquals(128, bitmap.nextClearDay(0));
+    }
+
+    @Test
+    public void clearDays_skipUnscheduledDays() {
+        WeekdaySchedule mondays = WeekdaySchedule.of("Weekly", null);
+        // Mondays 1970-01-05, 12 and 19, plus a Tuesday that does not count
+        CompletionBitmap bitmap = CompletionBitmap.of(4, 11, 18, 19);
+
+        assertEquals(-3, bitmap.previousClearDay(18, mondays));
+        assertEquals(25, bitmap.nextClearDay(4, mondays));
+        assertEquals(3, bitmap.countRange(0, 30, mondays));
+        assertEquals(4, bitmap.countRange(0, 30));
+    }
+}
@@ -0,0 +1,96 @@
+package com.sajoldev.habittracker.core.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CompletionIndexTest - Window counts, kept in step with toggles or rebuilt when the bitmap grows
+ */
+public class CompletionIndexTest {
+
+    @Test
+    public void countBetween_matchesThePopcount() {
+        CompletionBitmap bitmap = CompletionBitmap.of(1, 63, 64, 65, 200, 201);
+        CompletionIndex index = CompletionIndex.of(bitmap, WeekdaySchedule.DAILY);
+
+        assertEquals(6, index.count());
+        for (int start = -10; start < 210; start += 7) {
+            for (int end = start; end < 210; end += 13) {
+                assertEquals(bitmap.countRange(start, end), index.countBetween(start, end));
+            }
+        }
+        assertEquals(0, index.countBetween(10, 5));
+    }
+
+    @Test
+    public void onToggle_updatesCountsWithinTheWordRange() {
+        CompletionBitmap bitmap = CompletionBitmap.of(100, 101);
+        CompletionIndex index = CompletionIndex.of(bitmap, WeekdaySchedule.DAILY);
+
+        bitmap.add(102);
+        index.onToggle(102, true);
+        bitmap.remove(100);
+        index.onToggle(100, false);
+
+        assertTrue(index.isCurrent());
+        assertEquals(2, index.countBetween(100, 102));
+        assertEquals(2, index.count());
+    }
+
+    @Test
+    public void growingTheBitmap_makesTheIndexStale() {
+        CompletionBitmap bitmap = CompletionBitmap.of(100, 101);
+        CompletionIndex index = CompletionIndex.of(bitmap, WeekdaySchedule.DAILY);
+
+        bitmap.add(300);
+        index.onToggle(300, true);
+
+        assertFalse(index.isCurrent());
+    }
+
+    @Test
+    public void habitRecord_rebuildsTheIndexAfterGrowth() {
+        HabitRecord habit = new HabitRecord(1, 100, WeekdaySchedule.DAILY, CompletionBitmap.of(100, 101));
+        CompletionIndex before = habit.getCompletionIndex();
+        assertEquals(2, before.countBetween(0, 400));
+
+        // Upwards, past the last word
+        habit.markCompletedOnDay(300);
+        CompletionIndex after = habit.getCompletionIndex();
+        assertNotSame(before, after);
+        assertEquals(3, after.countBetween(0, 400));
+        assertEquals(1, after.countBetween(250, 400));
+
+        // Downwards, before the anchor
+        habit.markCompletedOnDay(-10);
+        assertEquals(1, habit.getCompletionIndex().countBetween(-20, 0));
+        assertEquals(4, habit.getCompletionIndex().countBetween(-20, 400));
+
+        // Within the range again, kept in step without a rebuild
+        CompletionIndex current = habit.getCompletionIndex();
+        habit.unmarkCompletedOnDay(101);
+        assertEquals(3, habit.getCompletionIndex().countBetween(-20, 400));
+        assertSame(current, habit.getCompletionIndex());
+    }
+
+    @Test
+    public void countDueBetween_countsScheduledDaysOnly() {
+        WeekdaySchedule mondays = WeekdaySchedule.of("Weekly", null);
+        // Mondays 4 and 11, and Tuesday 5
+        CompletionBitmap bitmap = CompletionBitmap.of(4, 5, 11);
+        CompletionIndex index = CompletionIndex.of(bitmap, mondays);
+
+        assertEquals(3, index.countBetween(0, 20));
+        assertEquals(2, index.countDueBetween(0, 20));
+        assertEquals(1, index.countDueBetween(5, 20));
+
+        bitmap.add(18);
+        index.onToggle(18, true);
+        assertEquals(3, index.countDueBetween(0, 20));
+    }
+}
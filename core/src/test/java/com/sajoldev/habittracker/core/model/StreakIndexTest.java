@@ -0,0 +1,130 @@
+package com.sajoldev.habittracker.core.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StreakIndexTest - Joining and splitting runs, and the lazily recomputed longest run
+ */
+public class StreakIndexTest {
+
+    private static final WeekdaySchedule DAILY = WeekdaySchedule.DAILY;
+
+    private static int ordinal(int day) {
+        return DAILY.ordinal(day);
+    }
+
+    @Test
+    public void of_buildsOneRunPerStretch() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(1, 2, 3, 5, 6, 10), DAILY);
+
+        assertEquals(3, index.runCount());
+        assertEquals(3, index.longestStreak());
+        assertEquals(2, index.streakEndingAt(ordinal(2)));
+        assertEquals(0, index.streakEndingAt(ordinal(4)));
+        assertTrue(index.contains(ordinal(10)));
+        assertFalse(index.contains(ordinal(9)));
+    }
+
+    @Test
+    public void add_joinsTheRunsOnBothSides() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(1, 2, 3, 5, 6, 10), DAILY);
+
+        assertTrue(index.add(ordinal(4)));
+
+        assertEquals(2, index.runCount());
+        assertEquals(6, index.longestStreak());
+        assertEquals(6, index.streakEndingAt(ordinal(6)));
+        assertFalse(index.add(ordinal(4)));
+    }
+
+    @Test
+    public void add_extendsOrStartsRuns() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(5, 6), DAILY);
+
+        index.add(ordinal(7));
+        index.add(ordinal(4));
+        index.add(ordinal(20));
+
+        assertEquals(2, index.runCount());
+        assertEquals(4, index.streakEndingAt(ordinal(7)));
+        assertEquals(1, index.streakEndingAt(ordinal(20)));
+    }
+
+    @Test
+    public void remove_splitsARun() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(1, 2, 3, 4, 5, 6, 10), DAILY);
+
+        assertTrue(index.remove(ordinal(3)));
+
+        assertEquals(3, index.runCount());
+        assertEquals(2, index.streakEndingAt(ordinal(2)));
+        assertEquals(3, index.streakEndingAt(ordinal(6)));
+        assertFalse(index.remove(ordinal(3)));
+    }
+
+    @Test
+    public void remove_shortensOrDropsRuns() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(1, 2, 3, 10), DAILY);
+
+        index.remove(ordinal(1));
+        index.remove(ordinal(3));
+        index.remove(ordinal(10));
+
+        assertEquals(1, index.runCount());
+        assertEquals(1, index.streakEndingAt(ordinal(2)));
+        assertEquals(1, index.longestStreak());
+    }
+
+    @Test
+    public void longestStreak_isRecomputedAfterTheLongestRunShrinks() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(1, 2, 3, 4, 5, 10, 11, 12), DAILY);
+        assertEquals(5, index.longestStreak());
+
+        index.remove(ordinal(3));
+        assertEquals(3, index.longestStreak());
+
+        // Shrinking a shorter run leaves the longest alone
+        index.remove(ordinal(12));
+        assertEquals(2, index.longestStreak());
+
+        index.add(ordinal(3));
+        assertEquals(5, index.longestStreak());
+    }
+
+    @Test
+    public void currentStreak_keepsTodayOpen() {
+        StreakIndex index = StreakIndex.of(CompletionBitmap.of(1, 2, 3), DAILY);
+
+        assertEquals(3, index.currentStreak(ordinal(3)));
+        assertEquals(3, index.currentStreak(ordinal(4)));
+        assertEquals(0, index.currentStreak(ordinal(5)));
+        assertEquals(0, index.currentStreak(ordinal(0)));
+    }
+
+    @Test
+    public void toggles_matchAFreshIndex() {
+        Random random = new Random(42);
+        WeekdaySchedule schedule = WeekdaySchedule.of("Custom", "Mon,Wed,Fri,Sat");
+        CompletionBitmap bitmap = new CompletionBitmap();
+        StreakIndex index = StreakIndex.of(bitmap, schedule);
+
+        for (int i = 0; i < 2000; i++) {
+            int day = 18000 + random.nextInt(400);
+            if (!schedule.isScheduled(day)) continue;
+            if (random.nextBoolean()) {
+                assertEquals(bitmap.add(day), index.add(schedule.ordinal(day)));
+            } else {
+                assertEquals(bitmap.remove(day), index.remove(schedule.ordinal(day)));
+            }
+            StreakIndex fresh = StreakIndex.of(bitmap, schedule);
+            assertEquals(fresh.runCount(), index.runCount());
+            assertEquals(fresh.longestStreak(), index.longestStreak());
+        }
+    }
+}
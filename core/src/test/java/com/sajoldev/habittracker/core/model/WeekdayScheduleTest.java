@@ -0,0 +1,87 @@
+package com.sajoldev.habittracker.core.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WeekdayScheduleTest - Parsing and ordinals for Daily, Weekly and Custom habits
+ * Epoch day 0 is Thursday 1970-01-01, so day 4 is the first Monday
+ */
+public class WeekdayScheduleTest {
+
+    @Test
+    public void weekday_isMondayBased() {
+        assertEquals(3, WeekdaySchedule.weekday(0));
+        assertEquals(0, WeekdaySchedule.weekday(4));
+        assertEquals(6, WeekdaySchedule.weekday(10));
+        assertEquals(2, WeekdaySchedule.weekday(-1));
+    }
+
+    @Test
+    public void of_parsesFrequencies() {
+        assertSame(WeekdaySchedule.DAILY, WeekdaySchedule.of("Daily", "Mon"));
+        assertSame(WeekdaySchedule.DAILY, WeekdaySchedule.of(null, null));
+        assertEquals(1, WeekdaySchedule.of("Weekly", null).getMask());
+        assertEquals(0b10101, WeekdaySchedule.of("Custom", "Mon, wed,FRI").getMask());
+        assertSame(WeekdaySchedule.DAILY, WeekdaySchedule.of("Custom", ""));
+        assertSame(WeekdaySchedule.DAILY, WeekdaySchedule.of("Custom", null));
+    }
+
+    @Test
+    public void dailyOrdinals_areConsecutiveDays() {
+        WeekdaySchedule daily = WeekdaySchedule.DAILY;
+
+        assertEquals(0, daily.ordinal(4));
+        assertEquals(-1, daily.ordinal(3));
+        for (int day = -100; day < 100; day++) {
+            assertEquals(daily.ordinal(day) + 1, daily.ordinal(day + 1));
+        }
+        assertEquals(7, daily.countScheduled(4, 10));
+    }
+
+    @Test
+    public void weeklyOrdinals_countMondays() {
+        WeekdaySchedule weekly = WeekdaySchedule.of("Weekly", null);
+
+        assertEquals(0, weekly.ordinal(4));
+        assertEquals(1, weekly.ordinal(5));
+        assertEquals(1, weekly.ordinal(11));
+        assertEquals(2, weekly.ordinal(18));
+        assertEquals(-1, weekly.ordinal(-3));
+        assertTrue(weekly.isScheduled(11));
+        assertFalse(weekly.isScheduled(12));
+        assertEquals(2, weekly.countScheduled(4, 17));
+        assertEquals(4, weekly.previousScheduledDay(10));
+        assertEquals(11, weekly.nextScheduledDay(5));
+        assertEquals(11, weekly.nextScheduledDay(11));
+    }
+
+    @Test
+    public void customOrdinals_areConsecutiveOverDueDays() {
+        WeekdaySchedule mwf = WeekdaySchedule.of("Custom", "Mon,Wed,Fri");
+
+        // Mon 4, Wed 6, Fri 8, Mon 11
+        assertEquals(0, mwf.ordinal(4));
+        assertEquals(1, mwf.ordinal(6));
+        assertEquals(2, mwf.ordinal(8));
+        assertEquals(3, mwf.ordinal(11));
+        // An unscheduled day shares the ordinal of the next due day
+        assertEquals(mwf.ordinal(6), mwf.ordinal(5));
+
+        int previous = Integer.MIN_VALUE;
+        for (int day = -50; day < 50; day++) {
+            if (!mwf.isScheduled(day)) continue;
+            if (previous != Integer.MIN_VALUE) {
+                assertEquals(mwf.ordinal(previous) + 1, mwf.ordinal(day));
+            }
+            previous = day;
+        }
+        assertEquals(3, mwf.countScheduled(4, 10));
+        assertEquals(8, mwf.previousScheduledDay(10));
+        assertEquals(11, mwf.nextScheduledDay(9));
+    }
+}